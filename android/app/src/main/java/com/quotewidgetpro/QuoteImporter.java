@@ -0,0 +1,237 @@
+package com.quotewidgetpro;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams a user-supplied quote collection into a {@link QuoteStoreWriter}.
+ * Accepts either a JSON array of {"text", "author", "tags"} objects (the same
+ * shape as the bundled quotes.json, tags optional) or CSV with a text column,
+ * an author column and optionally a tags column of {@link #CSV_TAG_SEPARATOR}
+ * separated tags. Only one record is held in memory at a time.
+ */
+public final class QuoteImporter {
+    public static final int BATCH_SIZE = 1000;
+    public static final char CSV_TAG_SEPARATOR = ';';
+
+    public interface ProgressListener {
+        void onProgress(int imported, int skipped);
+    }
+
+    private final QuoteStoreWriter writer;
+    private final AtomicBoolean cancelled;
+    private final ProgressListener listener;
+    // Tags of the record being read
+    private final List<String> tags = new ArrayList<>();
+    private int skipped;
+
+    public QuoteImporter(QuoteStoreWriter writer, AtomicBoolean cancelled, ProgressListener listener) {
+        this.writer = writer;
+        this.cancelled = cancelled;
+        this.listener = listener;
+    }
+
+    public int getImported() {
+        return writer.size();
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public void read(InputStream input) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+        if (peekFirstChar(reader) == '[') {
+            readJson(reader);
+        } else {
+            readCsv(reader);
+        }
+        writer.flush();
+        listener.onProgress(writer.size(), skipped);
+    }
+
+    private static int peekFirstChar(BufferedReader reader) throws IOException {
+        while (true) {
+            reader.mark(1);
+            int c = reader.read();
+            if (c == -1) {
+                return c;
+            }
+            if (c != '\uFEFF' && !Character.isWhitespace(c)) {
+                reader.reset();
+                return c;
+            }
+        }
+    }
+
+    private void readJson(Reader input) throws IOException {
+        JsonReader reader = new JsonReader(input);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                skipped++;
+                continue;
+            }
+            String text = null;
+            String author = null;
+            tags.clear();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("tags".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    readJsonTags(reader);
+                } else if (reader.peek() != JsonToken.STRING) {
+                    reader.skipValue();
+                } else if ("text".equals(name)) {
+                    text = reader.nextString();
+                } else if ("author".equals(name)) {
+                    author = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            add(text, author);
+        }
+        reader.endArray();
+    }
+
+    private void readJsonTags(JsonReader reader) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.STRING) {
+                tags.add(reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+    }
+
+    private void readCsv(BufferedReader reader) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int textColumn = 0;
+        int authorColumn = 1;
+        int tagsColumn = -1;
+        boolean firstRow = true;
+
+        while (readCsvRow(reader, fields, field)) {
+            if (firstRow) {
+                firstRow = false;
+                int text = indexOfIgnoreCase(fields, "text");
+                int author = indexOfIgnoreCase(fields, "author");
+                if (text >= 0 && author >= 0) {
+                    textColumn = text;
+                    authorColumn = author;
+                    tagsColumn = indexOfIgnoreCase(fields, "tags");
+                    continue;
+                }
+            }
+            if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                continue; // Blank line
+            }
+            tags.clear();
+            if (tagsColumn >= 0 && tagsColumn < fields.size()) {
+                splitTags(fields.get(tagsColumn));
+            }
+            add(textColumn < fields.size() ? fields.get(textColumn) : null,
+                    authorColumn < fields.size() ? fields.get(authorColumn) : null);
+        }
+    }
+
+    /**
+     * Reads one RFC 4180 record into {@code fields}. Quoted fields may contain
+     * separators, doubled quotes and line breaks. Returns false at end of input.
+     */
+    private static boolean readCsvRow(BufferedReader reader, List<String> fields, StringBuilder field)
+            throws IOException {
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        int c = reader.read();
+        if (c == -1) {
+            return false;
+        }
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return true;
+    }
+
+    private static int indexOfIgnoreCase(List<String> fields, String name) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (name.equalsIgnoreCase(fields.get(i).trim())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void splitTags(String field) {
+        int start = 0;
+        while (start <= field.length()) {
+            int end = field.indexOf(CSV_TAG_SEPARATOR, start);
+            if (end < 0) {
+                end = field.length();
+            }
+            tags.add(field.substring(start, end));
+            start = end + 1;
+        }
+    }
+
+    private void add(String text, String author) throws IOException {
+        if (cancelled.get()) {
+            throw new CancellationException("Import cancelled");
+        }
+        text = text != null ? text.trim() : "";
+        author = author != null ? author.trim() : "";
+        if (text.isEmpty() || author.isEmpty()) {
+            skipped++;
+            return;
+        }
+        writer.add(text, author, tags);
+        if (writer.size() % BATCH_SIZE == 0) {
+            writer.flush();
+            listener.onProgress(writer.size(), skipped);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.quotewidgetpro;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Configuration;
+
+import com.quotewidgetpro.widget.WidgetLog;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide access to the quote corpus, shared by the widget provider and
+ * the React Native module. An imported collection in the local store takes
+ * precedence over the bundled asset. The store is mapped lazily on first use
+ * and only author names are kept decoded on the heap; quote text is read from
+ * the mapping on demand. The author/tag index behind quote filters is built
+ * the first time a widget with a filter renders, and the quotes each filter
+ * matches are kept for the few most recently used filters. Widgets pick
+ * quotes that suit their size from a length-sorted index, built on first
+ * render. The full-text search index is persisted next to the local store
+ * and only mapped on later starts. Everything is dropped again when the
+ * system asks us to trim memory.
+ */
+public final class QuoteRepository implements ComponentCallbacks2 {
+    public static final int MAX_PAGE_SIZE = 100;
+    // Filters whose matching quotes stay cached; a few widgets rarely use more
+    private static final int MAX_CACHED_FILTERS = 8;
+
+    private static QuoteRepository instance;
+
+    private final Context context;
+    private QuoteStore store;
+    private String[] authors;
+    private QuoteLengthIndex lengthIndex;
+    private QuoteIndex quoteIndex;
+    private QuoteSearchIndex searchIndex;
+    // Held while the search index is opened or built, which can take a while
+    // and must not hold up renders waiting on the repository lock
+    private final Object searchLock = new Object();
+    private final Map<QuoteFilter, QuoteBitSet> matches =
+            new LinkedHashMap<QuoteFilter, QuoteBitSet>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<QuoteFilter, QuoteBitSet> eldest) {
+                    return size() > MAX_CACHED_FILTERS;
+                }
+            };
+
+    private QuoteRepository(Context context) {
+        this.context = context;
+    }
+
+    public static synchronized QuoteRepository getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new QuoteRepository(appContext != null ? appContext : context);
+            instance.context.registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Location of the store written by imports. Replaced atomically, so the
+     * widgets keep reading the previous corpus until an import commits.
+     */
+    public File getLocalStoreFile() {
+        return new File(new File(context.getFilesDir(), "quote_store"), QuoteStore.ASSET_NAME);
+    }
+
+    /**
+     * Location of the persisted search index, for whichever corpus it was last
+     * built from.
+     */
+    public File getSearchIndexFile() {
+        return new File(new File(context.getFilesDir(), "quote_store"), QuoteSearchIndex.FILE_NAME);
+    }
+
+    private synchronized QuoteStore getStore() throws IOException {
+        if (store == null) {
+            store = openStore();
+            authors = new String[store.getAuthorCount()];
+        }
+        return store;
+    }
+
+    private QuoteStore openStore() throws IOException {
+        File local = getLocalStoreFile();
+        if (local.isFile()) {
+            try {
+                return QuoteStore.openFile(local);
+            } catch (IOException e) {
+                WidgetLog.e("Error opening imported quotes, using bundled: " + e.getMessage());
+            }
+        }
+        return openAsset();
+    }
+
+    /**
+     * Maps the bundled store straight out of the APK. The asset is packaged
+     * uncompressed (see noCompress in build.gradle) so this never inflates it.
+     */
+    private QuoteStore openAsset() throws IOException {
+        AssetFileDescriptor fd = context.getAssets().openFd(QuoteStore.ASSET_NAME);
+        try (FileInputStream in = new FileInputStream(fd.getFileDescriptor())) {
+            FileChannel channel = in.getChannel();
+            return QuoteStore.wrap(channel.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength()));
+        } finally {
+            fd.close();
+        }
+    }
+
+    public synchronized int size() {
+        try {
+            return getStore().size();
+        } catch (IOException e) {
+            WidgetLog.e("Error opening quote store: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    public synchronized int getCorpusVersion() {
+        try {
+            return getStore().getCorpusVersion();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the quotes {@code filter} lets through, or null if it lets
+     * everything through or the store can't be read.
+     */
+    public synchronized QuoteBitSet getMatches(QuoteFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return null;
+        }
+        QuoteBitSet result = matches.get(filter);
+        if (result != null) {
+            return result;
+        }
+        try {
+            if (quoteIndex == null) {
+                long start = System.nanoTime();
+                quoteIndex = QuoteIndex.build(getStore(), getLengthIndex());
+                WidgetLog.d("Built quote index, ms: ", (System.nanoTime() - start) / 1_000_000L);
+            }
+        } catch (IOException e) {
+            WidgetLog.e("Error indexing quotes: " + e.getMessage());
+            return null;
+        }
+        result = quoteIndex.match(filter);
+        matches.put(filter, result);
+        return result;
+    }
+
+    /**
+     * Returns the quotes sorted by length, or null if the store can't be read.
+     */
+    public synchronized QuoteLengthIndex getLengthIndex() {
+        if (lengthIndex == null) {
+            try {
+                long start = System.nanoTime();
+                lengthIndex = QuoteLengthIndex.build(getStore());
+                WidgetLog.d("Built length index, ms: ", (System.nanoTime() - start) / 1_000_000L);
+            } catch (IOException e) {
+                WidgetLog.e("Error indexing quote lengths: " + e.getMessage());
+            }
+        }
+        return lengthIndex;
+    }
+
+    /**
+     * Returns the search index for the current corpus, mapping the persisted
+     * one if it was built from it and otherwise building and persisting it.
+     */
+    public QuoteSearchIndex getSearchIndex() throws IOException {
+        synchronized (searchLock) {
+            QuoteStore quotes;
+            synchronized (this) {
+                quotes = getStore();
+                if (searchIndex != null && searchIndex.isCurrent(quotes)) {
+                    return searchIndex;
+                }
+            }
+            QuoteSearchIndex index = openSearchIndex(quotes);
+            synchronized (this) {
+                searchIndex = index;
+            }
+            return index;
+        }
+    }
+
+    private QuoteSearchIndex openSearchIndex(QuoteStore quotes) throws IOException {
+        File file = getSearchIndexFile();
+        if (file.isFile()) {
+            try {
+                QuoteSearchIndex index = QuoteSearchIndex.openFile(file);
+                if (index.isCurrent(quotes)) {
+                    return index;
+                }
+            } catch (IOException e) {
+                WidgetLog.e("Error opening search index, rebuilding: " + e.getMessage());
+            }
+        }
+        long start = System.nanoTime();
+        SearchIndexWriter.of(quotes).write(file, quotes.getCorpusVersion());
+        WidgetLog.d("Built search index, ms: ", (System.nanoTime() - start) / 1_000_000L);
+        return QuoteSearchIndex.openFile(file);
+    }
+
+    /**
+     * Finds quotes matching {@code query}; see {@link QuoteSearchIndex#search}.
+     */
+    public QuoteSearchIndex.Result search(String query, int offset, int limit) throws IOException {
+        return getSearchIndex().search(query, offset, limit);
+    }
+
+    /**
+     * Returns the quote at {@code index}, or null if the store can't be read.
+     */
+    public synchronized Quote get(int index) {
+        try {
+            QuoteStore quotes = getStore();
+            return new Quote(quotes.getText(index), getAuthor(quotes, quotes.getAuthorIndex(index)));
+        } catch (IOException e) {
+            WidgetLog.e("Error reading quote " + index + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads at most {@link #MAX_PAGE_SIZE} quotes starting at {@code offset}.
+     */
+    public synchronized List<Quote> getPage(int offset, int limit) {
+        int total = size();
+        if (offset < 0 || offset >= total || limit <= 0) {
+            return Collections.emptyList();
+        }
+        int end = Math.min(total, offset + Math.min(limit, MAX_PAGE_SIZE));
+        List<Quote> page = new ArrayList<>(end - offset);
+        for (int i = offset; i < end; i++) {
+            page.add(get(i));
+        }
+        return page;
+    }
+
+    private String getAuthor(QuoteStore quotes, int authorIndex) {
+        String author = authors[authorIndex];
+        if (author == null) {
+            author = quotes.getAuthor(authorIndex).intern();
+            authors[authorIndex] = author;
+        }
+        return author;
+    }
+
+    public synchronized void release() {
+        store = null;
+        authors = null;
+        lengthIndex = null;
+        quoteIndex = null;
+        searchIndex = null;
+        matches.clear();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW
+                || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            release();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        release();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // Nothing cached here depends on configuration
+    }
+}
@@ -0,0 +1,227 @@
+package com.quotewidgetpro;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Picks quotes for each widget by walking its own {@link QuotePermutation} of
+ * the corpus, so a widget shows every quote once before any repeats. A widget
+ * stores only its permutation seed, a cursor, the few positions it deferred
+ * because a sibling was showing them, and the index it is currently showing.
+ * The walk itself is {@link QuoteSequence}; this class keeps the cursors in
+ * SharedPreferences and tracks what each widget shows.
+ *
+ * A pick normally advances the cursor and becomes what the widget shows.
+ * Picks made ahead of time, with {@code show} off, leave the cursor where it
+ * is and are kept as the widget's pending pick; {@link #setShown} moves the
+ * cursor past a pending pick once it is actually on screen. A pick made
+ * ahead and then thrown away is therefore picked again, not skipped.
+ */
+public final class QuoteSelector {
+    private static final String PREFS_NAME = "quote_selection";
+    // Prefix of the cursor keys for a pick made ahead of time
+    private static final String PENDING = "pending_";
+
+    // How many positions a widget may hold back at once to avoid quotes its siblings are showing
+    private static final int MAX_SIBLING_SKIPS = 8;
+
+    private static QuoteSelector instance;
+
+    private final SharedPreferences prefs;
+    private final Map<Integer, Integer> shown = new HashMap<>();
+    private final Random seeds = new Random();
+
+    private QuoteSelector(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (entry.getKey().startsWith("shown_") && entry.getValue() instanceof Integer) {
+                try {
+                    shown.put(Integer.parseInt(entry.getKey().substring(6)), (Integer) entry.getValue());
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours
+                }
+            }
+        }
+    }
+
+    public static synchronized QuoteSelector getInstance(Context context) {
+        if (instance == null) {
+            instance = new QuoteSelector(context.getApplicationContext() != null
+                    ? context.getApplicationContext()
+                    : context);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the index of the widget's next quote, or -1 if the corpus is
+     * empty. With {@code avoidSiblings} set, quotes that another widget is
+     * currently showing are passed over. With {@code show} set, the cursor
+     * advances and the pick becomes what the widget shows; otherwise the pick
+     * is only held pending until {@link #setShown}.
+     */
+    public synchronized int next(int widgetId, int corpusSize, int corpusVersion, boolean avoidSiblings,
+            boolean show) {
+        return next(widgetId, null, null, 0, corpusSize, corpusVersion, avoidSiblings, show);
+    }
+
+    /**
+     * Like {@link #next(int, int, int, boolean, boolean)}, but picks only
+     * among {@code matches}, the quotes the widget's filter lets through.
+     * Returns -1 if nothing matches.
+     */
+    public synchronized int next(int widgetId, QuoteBitSet matches, int corpusVersion, boolean avoidSiblings,
+            boolean show) {
+        return next(widgetId, matches, null, 0, matches.cardinality(), corpusVersion, avoidSiblings, show);
+    }
+
+    /**
+     * Like {@link #next(int, int, int, boolean, boolean)}, but picks only
+     * among the quotes ranked {@code [fromRank, toRank)} by length in
+     * {@code lengths}.
+     */
+    public synchronized int next(int widgetId, QuoteLengthIndex lengths, int fromRank, int toRank,
+            int corpusVersion, boolean avoidSiblings, boolean show) {
+        return next(widgetId, null, lengths, fromRank, toRank, corpusVersion, avoidSiblings, show);
+    }
+
+    // With lengths set, corpusSize is the end of the rank range
+    private int next(int widgetId, QuoteBitSet matches, QuoteLengthIndex lengths, int fromRank, int corpusSize,
+            int corpusVersion, boolean avoidSiblings, boolean show) {
+        if (corpusSize <= 0) {
+            return -1;
+        }
+        QuoteSequence.Cursor cursor = readCursor("", widgetId);
+        QuoteSequence.Siblings siblings = avoidSiblings ? shownIndex -> isShownElsewhere(widgetId, shownIndex) : null;
+        int index;
+        if (matches != null) {
+            index = QuoteSequence.next(cursor, matches, corpusVersion, siblings, MAX_SIBLING_SKIPS, seeds);
+        } else if (lengths != null) {
+            index = QuoteSequence.next(cursor, lengths, fromRank, corpusSize, corpusVersion, siblings,
+                    MAX_SIBLING_SKIPS, seeds);
+        } else {
+            index = QuoteSequence.next(cursor, corpusSize, corpusVersion, siblings, MAX_SIBLING_SKIPS, seeds);
+        }
+        if (index < 0) {
+            return -1;
+        }
+
+        SharedPreferences.Editor editor = prefs.edit();
+        if (show) {
+            putCursor(editor, "", widgetId, cursor);
+            removeCursor(editor, PENDING, widgetId);
+            shown.put(widgetId, index);
+            editor.putInt("shown_" + widgetId, index);
+        } else {
+            putCursor(editor, PENDING, widgetId, cursor);
+            editor.putInt(PENDING + "index_" + widgetId, index);
+        }
+        editor.apply();
+        return index;
+    }
+
+    /**
+     * Records that the widget now shows {@code index}, picked earlier without
+     * {@code show}. If it is the widget's pending pick, the cursor moves past it.
+     */
+    public synchronized void setShown(int widgetId, int index) {
+        shown.put(widgetId, index);
+        SharedPreferences.Editor editor = prefs.edit().putInt("shown_" + widgetId, index);
+        if (prefs.contains(PENDING + "seed_" + widgetId) && prefs.getInt(PENDING + "index_" + widgetId, -1) == index) {
+            putCursor(editor, "", widgetId, readCursor(PENDING, widgetId));
+        }
+        removeCursor(editor, PENDING, widgetId);
+        editor.apply();
+    }
+
+    /**
+     * Index the widget is currently showing, or -1 if it hasn't picked one.
+     */
+    public synchronized int getShown(int widgetId) {
+        Integer index = shown.get(widgetId);
+        return index != null ? index : -1;
+    }
+
+    private boolean isShownElsewhere(int widgetId, int index) {
+        for (Map.Entry<Integer, Integer> entry : shown.entrySet()) {
+            if (entry.getKey() != widgetId && entry.getValue() == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void remove(int widgetId) {
+        shown.remove(widgetId);
+        SharedPreferences.Editor editor = prefs.edit().remove("shown_" + widgetId);
+        removeCursor(editor, "", widgetId);
+        removeCursor(editor, PENDING, widgetId);
+        editor.apply();
+    }
+
+    private QuoteSequence.Cursor readCursor(String prefix, int widgetId) {
+        if (!prefs.contains(prefix + "seed_" + widgetId)) {
+            return new QuoteSequence.Cursor();
+        }
+        return new QuoteSequence.Cursor(prefs.getLong(prefix + "seed_" + widgetId, 0),
+                prefs.getInt(prefix + "cursor_" + widgetId, 0),
+                prefs.getInt(prefix + "size_" + widgetId, -1),
+                prefs.getInt(prefix + "corpus_" + widgetId, 0),
+                parsePositions(prefs.getString(prefix + "deferred_" + widgetId, "")));
+    }
+
+    private static void putCursor(SharedPreferences.Editor editor, String prefix, int widgetId,
+            QuoteSequence.Cursor cursor) {
+        editor.putLong(prefix + "seed_" + widgetId, cursor.getSeed())
+                .putInt(prefix + "cursor_" + widgetId, cursor.getPosition())
+                .putInt(prefix + "size_" + widgetId, cursor.getCorpusSize())
+                .putInt(prefix + "corpus_" + widgetId, cursor.getCorpusVersion());
+        int[] deferred = cursor.getDeferred();
+        if (deferred.length == 0) {
+            editor.remove(prefix + "deferred_" + widgetId);
+        } else {
+            StringBuilder positions = new StringBuilder();
+            for (int position : deferred) {
+                if (positions.length() > 0) {
+                    positions.append(',');
+                }
+                positions.append(position);
+            }
+            editor.putString(prefix + "deferred_" + widgetId, positions.toString());
+        }
+    }
+
+    // Comma-separated positions; anything unreadable is dropped, and QuoteSequence drops stale ones
+    private static int[] parsePositions(String value) {
+        if (value.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = value.split(",");
+        int[] positions = new int[parts.length];
+        int n = 0;
+        for (String part : parts) {
+            try {
+                positions[n] = Integer.parseInt(part);
+                n++;
+            } catch (NumberFormatException ignored) {
+                // Not written by this version
+            }
+        }
+        return Arrays.copyOf(positions, n);
+    }
+
+    // A pending cursor also has the pick it leads to under index_
+    private static void removeCursor(SharedPreferences.Editor editor, String prefix, int widgetId) {
+        editor.remove(prefix + "seed_" + widgetId)
+                .remove(prefix + "cursor_" + widgetId)
+                .remove(prefix + "size_" + widgetId)
+                .remove(prefix + "corpus_" + widgetId)
+                .remove(prefix + "deferred_" + widgetId)
+                .remove(prefix + "index_" + widgetId);
+    }
+}
@@ -3,260 +3,555 @@ package com.quotewidgetpro;
 import android.appwidget.AppWidgetManager;
 import android.content.ComponentName;
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.graphics.Color;
-import android.content.Intent;
+import android.net.Uri;
+import android.util.Log;
 
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
 import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 
+import com.quotewidgetpro.widget.CssColors;
+import com.quotewidgetpro.widget.LatencyHistogram;
+import com.quotewidgetpro.widget.PreparedQuotes;
 import com.quotewidgetpro.widget.QuoteWidgetProvider;
+import com.quotewidgetpro.widget.RenderMetrics;
+import com.quotewidgetpro.widget.WidgetConfig;
+import com.quotewidgetpro.widget.WidgetConfigResolver;
+import com.quotewidgetpro.widget.WidgetEvents;
+import com.quotewidgetpro.widget.WidgetLog;
+import com.quotewidgetpro.widget.WidgetRenderExecutor;
+import com.quotewidgetpro.widget.WidgetSettingsRecord;
+import com.quotewidgetpro.widget.WidgetSettingsStore;
+import com.quotewidgetpro.widget.WidgetUpdateScheduler;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bridge between the React Native app and the widgets. Implements the
+ * codegen spec generated from src/specs/NativeQuoteWidget.ts, so under the
+ * new architecture it is a TurboModule whose *Sync getters are called over
+ * JSI without a Promise round-trip; writes stay asynchronous.
+ */
+public class QuoteWidgetModule extends NativeQuoteWidgetSpec {
+    private static final String EVENT_IMPORT_PROGRESS = "QuoteImportProgress";
+    private static final String EVENT_WIDGET_ADDED = "QuoteWidgetAdded";
+    private static final String EVENT_WIDGET_DELETED = "QuoteWidgetDeleted";
+    private static final String EVENT_WIDGET_RENDERED = "QuoteWidgetRendered";
+
+    private static final ExecutorService importExecutor = Executors.newSingleThreadExecutor();
+    private static final AtomicBoolean importRunning = new AtomicBoolean(false);
+    private static final AtomicBoolean importCancelled = new AtomicBoolean(false);
+    // Searches run in order off the JS thread; the first may build the index
+    private static final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+
+    private final WidgetEvents.Listener widgetListener = new WidgetEvents.Listener() {
+        @Override
+        public void onWidgetAdded(int appWidgetId) {
+            WritableMap event = new WritableNativeMap();
+            event.putInt("widgetId", appWidgetId);
+            emit(EVENT_WIDGET_ADDED, event);
+        }
+
+        @Override
+        public void onWidgetsDeleted(int[] appWidgetIds) {
+            WritableArray ids = new WritableNativeArray();
+            for (int appWidgetId : appWidgetIds) {
+                ids.pushInt(appWidgetId);
+            }
+            WritableMap event = new WritableNativeMap();
+            event.putArray("widgetIds", ids);
+            emit(EVENT_WIDGET_DELETED, event);
+        }
 
-public class QuoteWidgetModule extends ReactContextBaseJavaModule {
-    private static final String MODULE_NAME = "QuoteWidget";
+        @Override
+        public void onWidgetRendered(int appWidgetId, int quoteIndex, Quote quote, double durationMillis) {
+            WritableMap event = new WritableNativeMap();
+            event.putInt("widgetId", appWidgetId);
+            event.putInt("quoteIndex", quoteIndex);
+            event.putString("text", quote.text);
+            event.putString("author", quote.author);
+            event.putDouble("durationMs", durationMillis);
+            emit(EVENT_WIDGET_RENDERED, event);
+        }
+    };
 
     public QuoteWidgetModule(ReactApplicationContext reactContext) {
         super(reactContext);
     }
 
+    @Override
+    public void initialize() {
+        super.initialize();
+        WidgetEvents.setListener(widgetListener);
+        // Have the search index mapped, or built, before the first query
+        warmSearchIndex(getReactApplicationContext());
+    }
+
+    /**
+     * Maps the search index for the current corpus on the search thread,
+     * building it from the mapped store first if it is missing or stale.
+     */
+    private static void warmSearchIndex(Context context) {
+        searchExecutor.execute(() -> {
+            try {
+                QuoteRepository.getInstance(context).getSearchIndex();
+            } catch (IOException e) {
+                WidgetLog.e("Error loading search index: " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void invalidate() {
+        WidgetEvents.removeListener(widgetListener);
+        super.invalidate();
+    }
+
     @Override
     public String getName() {
-        return MODULE_NAME;
+        return NAME;
+    }
+
+    /** Reads the settings the JS side sends into a record holding only the keys present. */
+    private WidgetSettingsRecord parseSettings(ReadableMap settings) {
+        WidgetSettingsRecord patch = new WidgetSettingsRecord();
+        if (settings.hasKey("fontFamily")) {
+            patch.setFontFamily(settings.getString("fontFamily"));
+        }
+        if (settings.hasKey("fontSize")) {
+            patch.setFontSize(settings.getInt("fontSize"));
+        }
+        if (settings.hasKey("textColor")) {
+            String textColor = settings.getString("textColor");
+            if ("device".equals(textColor)) {
+                patch.setTextColor(true, Color.BLACK);
+            } else {
+                try {
+                    patch.setTextColor(false, CssColors.parse(textColor));
+                } catch (IllegalArgumentException e) {
+                    WidgetLog.w("Invalid color format: " + textColor + ", using default");
+                    patch.setTextColor(false, Color.BLACK);
+                }
+            }
+        }
+        if (settings.hasKey("fontWeight")) {
+            patch.setFontWeight(settings.getString("fontWeight"));
+        }
+        if (settings.hasKey("backgroundColor")) {
+            String bgColor = settings.getString("backgroundColor");
+            if ("device".equals(bgColor)) {
+                patch.setBackgroundColor(true, Color.WHITE);
+            } else {
+                try {
+                    patch.setBackgroundColor(false, CssColors.parse(bgColor));
+                } catch (IllegalArgumentException e) {
+                    WidgetLog.w("Invalid color format: " + bgColor + ", using default");
+                    patch.setBackgroundColor(false, Color.WHITE);
+                }
+            }
+        }
+        if (settings.hasKey("backgroundType")) {
+            patch.setBackgroundType(settings.getString("backgroundType"));
+        }
+        if (settings.hasKey("backgroundOpacity")) {
+            patch.setBackgroundOpacity((float) settings.getDouble("backgroundOpacity"));
+        }
+        if (settings.hasKey("borderRadius")) {
+            patch.setBorderRadius(settings.getInt("borderRadius"));
+        }
+        if (settings.hasKey("refreshInterval")) {
+            patch.setRefreshInterval(settings.getInt("refreshInterval"));
+        }
+        if (settings.hasKey("autoTheme")) {
+            patch.setAutoTheme(settings.getBoolean("autoTheme"));
+        }
+        if (settings.hasKey("uniqueQuotes")) {
+            patch.setUniqueQuotes(settings.getBoolean("uniqueQuotes"));
+        }
+        if (settings.hasKey("quoteFilter")) {
+            patch.setQuoteFilter(settings.isNull("quoteFilter")
+                    ? QuoteFilter.NONE
+                    : parseQuoteFilter(settings.getMap("quoteFilter")));
+        }
+        if (settings.hasKey("refreshMode")) {
+            String refreshMode = settings.getString("refreshMode");
+            if (WidgetConfig.REFRESH_MODE_DAILY.equals(refreshMode)
+                    || WidgetConfig.REFRESH_MODE_INTERVAL.equals(refreshMode)) {
+                patch.setRefreshMode(refreshMode);
+            } else {
+                WidgetLog.w("Invalid refresh mode: " + refreshMode + ", using default");
+                patch.setRefreshMode(WidgetConfig.REFRESH_MODE_INTERVAL);
+            }
+        }
+        if (settings.hasKey("dailySeed")) {
+            patch.setDailySeed(settings.getInt("dailySeed"));
+        }
+        return patch;
     }
 
-    private String toCssColor(int color) {
-        // Convert Android ARGB to CSS RGBA
-        // Android: 0xAARRGGBB
-        // CSS: #RRGGBBAA
-        int a = (color >> 24) & 0xFF;
-        int r = (color >> 16) & 0xFF;
-        int g = (color >> 8) & 0xFF;
-        int b = color & 0xFF;
-        return String.format("#%02X%02X%02X%02X", r, g, b, a);
+    private static QuoteFilter parseQuoteFilter(ReadableMap filter) {
+        return new QuoteFilter(getStrings(filter, "authors"), getStrings(filter, "excludedAuthors"),
+                getStrings(filter, "tags"), getStrings(filter, "excludedTags"),
+                filter.hasKey("minLength") ? filter.getInt("minLength") : 0,
+                filter.hasKey("maxLength") ? filter.getInt("maxLength") : 0);
     }
 
-    private int parseCssColor(String cssColor) {
-        // Parse CSS color (#RRGGBB or #RRGGBBAA) to Android int (ARGB)
-        if (cssColor == null || !cssColor.startsWith("#")) {
-            return Color.BLACK; // Default fail safe
+    private static List<String> getStrings(ReadableMap map, String key) {
+        List<String> strings = new ArrayList<>();
+        if (!map.hasKey(key) || map.isNull(key)) {
+            return strings;
         }
+        ReadableArray array = map.getArray(key);
+        for (int i = 0; i < array.size(); i++) {
+            strings.add(array.getString(i));
+        }
+        return strings;
+    }
 
-        try {
-            if (cssColor.length() == 7) {
-                // #RRGGBB
-                return Color.parseColor(cssColor);
-            } else if (cssColor.length() == 9) {
-                // #RRGGBBAA
-                long val = Long.parseLong(cssColor.substring(1), 16);
-                int r = (int) ((val >> 24) & 0xFF);
-                int g = (int) ((val >> 16) & 0xFF);
-                int b = (int) ((val >> 8) & 0xFF);
-                int a = (int) (val & 0xFF);
-                return Color.argb(a, r, g, b);
-            }
-        } catch (Exception e) {
-            android.util.Log.e("QuoteWidget", "Error parsing color: " + cssColor, e);
+    private static WritableMap toFilterMap(QuoteFilter filter) {
+        WritableMap map = new WritableNativeMap();
+        map.putArray("authors", toStringArray(filter.getAuthors()));
+        map.putArray("excludedAuthors", toStringArray(filter.getExcludedAuthors()));
+        map.putArray("tags", toStringArray(filter.getTags()));
+        map.putArray("excludedTags", toStringArray(filter.getExcludedTags()));
+        map.putInt("minLength", filter.getMinLength());
+        map.putInt("maxLength", filter.getMaxLength());
+        return map;
+    }
+
+    private static WritableArray toStringArray(List<String> strings) {
+        WritableArray array = new WritableNativeArray();
+        for (String string : strings) {
+            array.pushString(string);
+        }
+        return array;
+    }
+
+    private static int[] getInstalledWidgetIds(Context context) {
+        ComponentName component = new ComponentName(context, QuoteWidgetProvider.class);
+        return AppWidgetManager.getInstance(context).getAppWidgetIds(component);
+    }
+
+    /**
+     * Queues a render of the widgets; the future completes once it has run, or
+     * completes exceptionally if it was dropped or failed.
+     */
+    private static CompletableFuture<Void> requestRender(Context context, int[] widgetIds, boolean advance) {
+        CompletableFuture<Void> rendered = new CompletableFuture<>();
+        if (widgetIds.length == 0) {
+            rendered.complete(null);
+        } else {
+            WidgetRenderExecutor.request(context, widgetIds, advance, success -> {
+                if (success) {
+                    rendered.complete(null);
+                } else {
+                    rendered.completeExceptionally(new IllegalStateException("Widget render failed"));
+                }
+            });
         }
-        return Color.parseColor(cssColor); // Fallback to standard parse
+        return rendered;
     }
 
+    @Override
     @ReactMethod
-    public void updateWidgetSettings(int widgetId, ReadableMap settings, Promise promise) {
+    public void updateWidgetSettings(double widgetId, ReadableMap settings, Promise promise) {
+        updateWidgetSettings((int) widgetId, settings, promise);
+    }
+
+    private void updateWidgetSettings(int widgetId, ReadableMap settings, Promise promise) {
         try {
             Context context = getReactApplicationContext();
-            SharedPreferences prefs = context.getSharedPreferences("widget_prefs", Context.MODE_PRIVATE);
-            SharedPreferences.Editor editor = prefs.edit();
 
             // Debug logging
-            android.util.Log.d("QuoteWidget", "Updating widget " + widgetId + " with settings: " + settings.toString());
-
-            // Save all settings
-            if (settings.hasKey("fontFamily")) {
-                editor.putString("font_family_" + widgetId, settings.getString("fontFamily"));
-            }
-            if (settings.hasKey("fontSize")) {
-                editor.putInt("font_size_" + widgetId, settings.getInt("fontSize"));
-            }
-            if (settings.hasKey("textColor")) {
-                String textColor = settings.getString("textColor");
-                if ("device".equals(textColor)) {
-                    editor.putString("text_color_type_" + widgetId, "device");
-                    editor.remove("text_color_" + widgetId); // Remove custom color when using device
-                } else {
-                    editor.putString("text_color_type_" + widgetId, "custom");
-                    try {
-                        editor.putInt("text_color_" + widgetId, parseCssColor(textColor));
-                    } catch (IllegalArgumentException e) {
-                        android.util.Log.w("QuoteWidget", "Invalid color format: " + textColor + ", using default");
-                        editor.putInt("text_color_" + widgetId, Color.BLACK);
-                    }
-                }
-            }
-            if (settings.hasKey("fontWeight")) {
-                editor.putString("font_weight_" + widgetId, settings.getString("fontWeight"));
-            }
-            if (settings.hasKey("backgroundColor")) {
-                String bgColor = settings.getString("backgroundColor");
-                if ("device".equals(bgColor)) {
-                    editor.putString("background_color_type_" + widgetId, "device");
-                    editor.remove("background_color_" + widgetId); // Remove custom color when using device
-                } else {
-                    editor.putString("background_color_type_" + widgetId, "custom");
-                    try {
-                        editor.putInt("background_color_" + widgetId, parseCssColor(bgColor));
-                    } catch (IllegalArgumentException e) {
-                        android.util.Log.w("QuoteWidget", "Invalid color format: " + bgColor + ", using default");
-                        editor.putInt("background_color_" + widgetId, Color.WHITE);
-                    }
-                }
-            }
-            if (settings.hasKey("backgroundType")) {
-                editor.putString("background_type_" + widgetId, settings.getString("backgroundType"));
-            }
-            if (settings.hasKey("backgroundOpacity")) {
-                editor.putFloat("background_opacity_" + widgetId, (float) settings.getDouble("backgroundOpacity"));
-            }
-            if (settings.hasKey("borderRadius")) {
-                editor.putInt("border_radius_" + widgetId, settings.getInt("borderRadius"));
-            }
-            if (settings.hasKey("refreshInterval")) {
-                editor.putInt("refresh_interval_" + widgetId, settings.getInt("refreshInterval"));
-            }
-            if (settings.hasKey("autoTheme")) {
-                editor.putBoolean("auto_theme_" + widgetId, settings.getBoolean("autoTheme"));
+            if (WidgetLog.isLoggable(Log.DEBUG)) {
+                WidgetLog.d("Updating widget " + widgetId + " with settings: " + settings.toString());
             }
 
-            // Use commit() to ensure data is written synchronously before we trigger an
-            // update
-            editor.commit();
+            WidgetSettingsRecord patch = parseSettings(settings);
 
-            android.util.Log.d("QuoteWidget", "Settings saved for widget " + widgetId);
+            // The new values are visible to renders immediately; the record is
+            // written to disk in the background
+            CompletableFuture<Void> saved = WidgetSettingsStore.getInstance(context).update(widgetId, patch);
 
-            // Update all widgets if widgetId is 0 (default settings) or update specific
-            // widget
-            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-            if (widgetId == 0) {
-                // Update all widgets with default settings
-                ComponentName component = new ComponentName(context, QuoteWidgetProvider.class);
-                int[] widgetIds = appWidgetManager.getAppWidgetIds(component);
-                android.util.Log.d("QuoteWidget", "Updating all widgets: " + widgetIds.length + " widgets found");
-                for (int id : widgetIds) {
-                    QuoteWidgetProvider.updateAppWidget(context, appWidgetManager, id);
-                }
-            } else {
-                // Update specific widget
-                android.util.Log.d("QuoteWidget", "Updating specific widget: " + widgetId);
-                QuoteWidgetProvider.updateAppWidget(context, appWidgetManager, widgetId);
-            }
+            WidgetLog.d("Settings saved for widget ", widgetId);
 
-            // Force widget update by sending broadcast
-            Intent updateIntent = new Intent(context, QuoteWidgetProvider.class);
-            updateIntent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
+            // Redraw all widgets if widgetId is 0 (default settings) or the specific
+            // widget, through the render queue so repeated saves merge into one render
+            final int[] widgetIds;
             if (widgetId == 0) {
-                // Update all widgets
-                ComponentName component = new ComponentName(context, QuoteWidgetProvider.class);
-                int[] widgetIds = appWidgetManager.getAppWidgetIds(component);
-                updateIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, widgetIds);
+                widgetIds = getInstalledWidgetIds(context);
+                WidgetLog.d("Updating all widgets, count: ", widgetIds.length);
+                // Widgets inheriting the default interval may have changed bucket
+                WidgetUpdateScheduler.getInstance(context).reschedule();
             } else {
-                // Update specific widget
-                updateIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, new int[] { widgetId });
+                WidgetLog.d("Updating specific widget: ", widgetId);
+                widgetIds = new int[] { widgetId };
+                WidgetUpdateScheduler.getInstance(context).schedule(widgetIds);
             }
-            context.sendBroadcast(updateIntent);
-
-            // Additional force update
-            if (widgetId != 0) {
-                appWidgetManager.notifyAppWidgetViewDataChanged(widgetId, R.id.widget_container);
-            }
-
-            android.util.Log.d("QuoteWidget", "Widget update completed for widget " + widgetId);
-            promise.resolve("Widget updated successfully");
+            CompletableFuture<Void> rendered = requestRender(context, widgetIds, false);
+
+            CompletableFuture.allOf(saved, rendered).whenComplete((result, error) -> {
+                if (saved.isCompletedExceptionally()) {
+                    WidgetLog.e("Error saving widget settings: " + error.getMessage(), error);
+                    promise.reject("UPDATE_ERROR", "Failed to save widget settings: " + error.getMessage());
+                } else if (error != null) {
+                    promise.reject("UPDATE_ERROR", "Settings saved but the widget failed to render");
+                } else {
+                    promise.resolve("Widget updated successfully");
+                }
+            });
         } catch (Exception e) {
-            android.util.Log.e("QuoteWidget", "Error updating widget: " + e.getMessage(), e);
+            WidgetLog.e("Error updating widget: " + e.getMessage(), e);
             promise.reject("UPDATE_ERROR", "Failed to update widget: " + e.getMessage());
         }
     }
 
+    @Override
     @ReactMethod
     public void updateDefaultSettings(ReadableMap settings, Promise promise) {
         updateWidgetSettings(0, settings, promise);
     }
 
+    /**
+     * Applies one set of settings to several widgets in a single call. Target 0
+     * stands for the defaults; when it is included, the other targets inherit
+     * the new values instead of storing their own copies. All records are
+     * saved in one background write and each affected widget is rendered
+     * once. Resolves with {widgetId, saved, rendered[, error]} per target.
+     */
+    @Override
     @ReactMethod
-    public void getWidgetSettings(int widgetId, Promise promise) {
+    public void applySettings(ReadableArray targets, ReadableMap settings, Promise promise) {
         try {
             Context context = getReactApplicationContext();
-            SharedPreferences prefs = context.getSharedPreferences("widget_prefs", Context.MODE_PRIVATE);
-
-            WritableMap settings = new WritableNativeMap();
+            int[] installed = getInstalledWidgetIds(context);
+            Set<Integer> installedIds = new HashSet<>();
+            for (int id : installed) {
+                installedIds.add(id);
+            }
 
-            // Check if widget-specific settings exist, otherwise use default settings
-            boolean hasWidgetSettings = prefs.contains("font_family_" + widgetId);
-            String suffix = hasWidgetSettings ? "_" + widgetId : "_0";
+            // Drop duplicates and widgets that no longer exist
+            Set<Integer> valid = new LinkedHashSet<>();
+            Set<Integer> invalid = new LinkedHashSet<>();
+            for (int i = 0; i < targets.size(); i++) {
+                int widgetId = (int) targets.getDouble(i);
+                if (widgetId == 0 || installedIds.contains(widgetId)) {
+                    valid.add(widgetId);
+                } else {
+                    invalid.add(widgetId);
+                }
+            }
+            int[] widgetIds = new int[valid.size()];
+            int n = 0;
+            for (int widgetId : valid) {
+                widgetIds[n++] = widgetId;
+            }
 
-            settings.putString("fontFamily", prefs.getString("font_family" + suffix, "sans-serif"));
-            settings.putInt("fontSize", prefs.getInt("font_size" + suffix, 14));
+            WidgetSettingsRecord patch = parseSettings(settings);
+            CompletableFuture<Void> saved = WidgetSettingsStore.getInstance(context).updateAll(widgetIds, patch);
 
-            // Handle text color
-            String textColorType = prefs.getString("text_color_type" + suffix, "custom");
-            if ("device".equals(textColorType)) {
-                settings.putString("textColor", "device");
+            // Every installed widget may inherit from the defaults
+            final int[] affected;
+            if (valid.contains(0)) {
+                affected = installed;
             } else {
-                int textColorInt = prefs.getInt("text_color" + suffix, Color.BLACK);
-                settings.putString("textColor", toCssColor(textColorInt));
+                affected = widgetIds;
+            }
+            CompletableFuture<Void> rendered = requestRender(context, affected, false);
+            if (patch.has(WidgetSettingsRecord.REFRESH_INTERVAL | WidgetSettingsRecord.REFRESH_MODE)) {
+                WidgetUpdateScheduler.getInstance(context).reschedule();
             }
+            WidgetLog.d("Applied settings, targets: ", widgetIds.length, ", widgets rendered: ", affected.length);
+
+            CompletableFuture.allOf(saved, rendered).whenComplete((result, error) -> {
+                if (saved.isCompletedExceptionally()) {
+                    WidgetLog.e("Error saving widget settings: " + error.getMessage(), error);
+                    promise.reject("UPDATE_ERROR", "Failed to save widget settings: " + error.getMessage());
+                    return;
+                }
+                // Saved either way; a failed render is reported per widget
+                boolean renderedOk = !rendered.isCompletedExceptionally();
+                WritableArray results = new WritableNativeArray();
+                for (int widgetId : valid) {
+                    WritableMap item = new WritableNativeMap();
+                    item.putInt("widgetId", widgetId);
+                    item.putBoolean("saved", true);
+                    item.putBoolean("rendered", widgetId != 0 && renderedOk);
+                    if (widgetId != 0 && !renderedOk) {
+                        item.putString("error", "Widget " + widgetId + " failed to render");
+                    }
+                    results.pushMap(item);
+                }
+                for (int widgetId : invalid) {
+                    WritableMap item = new WritableNativeMap();
+                    item.putInt("widgetId", widgetId);
+                    item.putBoolean("saved", false);
+                    item.putBoolean("rendered", false);
+                    item.putString("error", "Widget " + widgetId + " is not installed");
+                    results.pushMap(item);
+                }
+                promise.resolve(results);
+            });
+        } catch (Exception e) {
+            WidgetLog.e("Error applying settings: " + e.getMessage(), e);
+            promise.reject("UPDATE_ERROR", "Failed to apply settings: " + e.getMessage());
+        }
+    }
+
+    /** Settings as the JS side sees them, built from the cached resolved config. */
+    private WritableMap toSettingsMap(WidgetConfig config) {
+        WritableMap settings = new WritableNativeMap();
+        settings.putString("fontFamily", config.fontFamily);
+        settings.putInt("fontSize", config.fontSize);
+        settings.putString("textColor",
+                config.deviceTextColor ? WidgetConfig.COLOR_TYPE_DEVICE : CssColors.format(config.textColor));
+        settings.putString("fontWeight", config.fontWeight);
+        settings.putString("backgroundColor", config.deviceBackgroundColor
+                ? WidgetConfig.COLOR_TYPE_DEVICE
+                : CssColors.format(config.backgroundColor));
+        settings.putString("backgroundType", config.backgroundType);
+        settings.putDouble("backgroundOpacity", config.backgroundOpacity);
+        settings.putInt("borderRadius", config.borderRadius);
+        settings.putInt("refreshInterval", config.refreshInterval);
+        settings.putBoolean("autoTheme", config.autoTheme);
+        settings.putBoolean("uniqueQuotes", config.uniqueQuotes);
+        settings.putMap("quoteFilter", toFilterMap(config.quoteFilter));
+        settings.putString("refreshMode", config.refreshMode);
+        settings.putInt("dailySeed", config.dailySeed);
+        return settings;
+    }
 
-            settings.putString("fontWeight", prefs.getString("font_weight" + suffix, "400"));
+    @Override
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getWidgetSettingsSync(double widgetId) {
+        return toSettingsMap(WidgetConfigResolver.get(getReactApplicationContext(), (int) widgetId));
+    }
 
-            // Handle background color
-            String backgroundColorType = prefs.getString("background_color_type" + suffix, "custom");
-            if ("device".equals(backgroundColorType)) {
-                settings.putString("backgroundColor", "device");
-            } else {
-                int backgroundColorInt = prefs.getInt("background_color" + suffix, Color.WHITE);
-                settings.putString("backgroundColor", toCssColor(backgroundColorInt));
-            }
+    @Override
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getDefaultSettingsSync() {
+        return getWidgetSettingsSync(0);
+    }
+
+    @Override
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableArray getWidgetIdsSync() {
+        WritableArray result = new WritableNativeArray();
+        for (int widgetId : getInstalledWidgetIds(getReactApplicationContext())) {
+            result.pushInt(widgetId);
+        }
+        return result;
+    }
+
+    /**
+     * Size and version of the corpus, all the app needs besides a widget's
+     * seed to work out its quote of the day with src/dailyQuote.ts.
+     */
+    @Override
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getCorpusInfoSync() {
+        QuoteRepository repository = QuoteRepository.getInstance(getReactApplicationContext());
+        WritableMap result = new WritableNativeMap();
+        result.putInt("size", repository.size());
+        result.putInt("version", repository.getCorpusVersion());
+        return result;
+    }
+
+    /**
+     * Every installed widget with its effective settings and current quote,
+     * preceded by the defaults as widget 0, in one call.
+     */
+    @Override
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableArray getWidgetsSnapshot() {
+        Context context = getReactApplicationContext();
+        QuoteSelector selector = QuoteSelector.getInstance(context);
+        WritableArray result = new WritableNativeArray();
+        result.pushMap(toSnapshotEntry(context, selector, 0));
+        for (int widgetId : getInstalledWidgetIds(context)) {
+            result.pushMap(toSnapshotEntry(context, selector, widgetId));
+        }
+        return result;
+    }
 
-            settings.putString("backgroundType", prefs.getString("background_type" + suffix, "solid"));
-            settings.putDouble("backgroundOpacity", prefs.getFloat("background_opacity" + suffix, 1.0f));
-            settings.putInt("borderRadius", prefs.getInt("border_radius" + suffix, 12));
-            settings.putInt("refreshInterval", prefs.getInt("refresh_interval" + suffix, 60));
-            settings.putBoolean("autoTheme", prefs.getBoolean("auto_theme" + suffix, false));
+    private WritableMap toSnapshotEntry(Context context, QuoteSelector selector, int widgetId) {
+        WritableMap entry = new WritableNativeMap();
+        entry.putInt("widgetId", widgetId);
+        WidgetConfig config = WidgetConfigResolver.get(context, widgetId);
+        entry.putMap("settings", toSettingsMap(config));
+        int quoteIndex;
+        if (widgetId == 0) {
+            quoteIndex = -1;
+        } else if (config.isDaily()) {
+            QuoteRepository repository = QuoteRepository.getInstance(context);
+            quoteIndex = DailyQuote.index(DailyQuote.localEpochDay(System.currentTimeMillis(), TimeZone.getDefault()),
+                    config.dailySeed, repository.getCorpusVersion(), repository.size());
+        } else {
+            quoteIndex = selector.getShown(widgetId);
+        }
+        entry.putInt("quoteIndex", quoteIndex);
+        return entry;
+    }
 
-            promise.resolve(settings);
+    @Override
+    @ReactMethod
+    public void getWidgetSettings(double widgetId, Promise promise) {
+        try {
+            promise.resolve(getWidgetSettingsSync(widgetId));
         } catch (Exception e) {
             promise.reject("GET_ERROR", "Failed to get widget settings: " + e.getMessage());
         }
     }
 
+    @Override
     @ReactMethod
     public void getDefaultSettings(Promise promise) {
         getWidgetSettings(0, promise);
     }
 
+    @Override
     @ReactMethod
-    public void forceUpdateWidget(int widgetId, Promise promise) {
+    public void forceUpdateWidget(double widgetId, Promise promise) {
         try {
-            Context context = getReactApplicationContext();
-            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-            QuoteWidgetProvider.updateAppWidget(context, appWidgetManager, widgetId);
-            promise.resolve("Widget force updated successfully");
+            requestRender(getReactApplicationContext(), new int[] { (int) widgetId }, true)
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            promise.reject("UPDATE_ERROR", "Failed to force update widget: " + error.getMessage());
+                        } else {
+                            promise.resolve("Widget force updated successfully");
+                        }
+                    });
         } catch (Exception e) {
             promise.reject("UPDATE_ERROR", "Failed to force update widget: " + e.getMessage());
         }
     }
 
+    @Override
     @ReactMethod
     public void getAllWidgetIds(Promise promise) {
         try {
-            Context context = getReactApplicationContext();
-            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-            ComponentName component = new ComponentName(context, QuoteWidgetProvider.class);
-            int[] widgetIds = appWidgetManager.getAppWidgetIds(component);
+            int[] widgetIds = getInstalledWidgetIds(getReactApplicationContext());
 
             WritableMap result = new WritableNativeMap();
             for (int i = 0; i < widgetIds.length; i++) {
@@ -268,4 +563,189 @@ public class QuoteWidgetModule extends ReactContextBaseJavaModule {
             promise.reject("GET_IDS_ERROR", "Failed to get widget IDs: " + e.getMessage());
         }
     }
+
+    /**
+     * Render pipeline counters and per-stage latency percentiles (in µs) since
+     * the process started, for checking widget performance on real devices.
+     */
+    @Override
+    @ReactMethod
+    public void getRenderMetrics(Promise promise) {
+        WritableMap counters = new WritableNativeMap();
+        for (int i = 0; i < RenderMetrics.COUNTER_NAMES.length; i++) {
+            counters.putDouble(RenderMetrics.COUNTER_NAMES[i], RenderMetrics.getCounter(i));
+        }
+        counters.putDouble("rendersRequested", WidgetRenderExecutor.getRendersRequested());
+        counters.putDouble("rendersPerformed", WidgetRenderExecutor.getRendersPerformed());
+        counters.putDouble("broadcasts", WidgetRenderExecutor.getBroadcastCount());
+        counters.putDouble("broadcastTimeouts", WidgetRenderExecutor.getTimeoutCount());
+        counters.putDouble("mainThreadMillis", WidgetRenderExecutor.getMainThreadMillis());
+        counters.putDouble("maxMainThreadMillis", WidgetRenderExecutor.getMaxMainThreadMillis());
+
+        WritableMap stages = new WritableNativeMap();
+        for (int i = 0; i < RenderMetrics.STAGE_NAMES.length; i++) {
+            LatencyHistogram histogram = RenderMetrics.getHistogram(i);
+            WritableMap stage = new WritableNativeMap();
+            stage.putDouble("count", histogram.getCount());
+            stage.putDouble("meanUs", histogram.getMeanMicros());
+            stage.putDouble("p50Us", histogram.getPercentileMicros(50));
+            stage.putDouble("p90Us", histogram.getPercentileMicros(90));
+            stage.putDouble("p99Us", histogram.getPercentileMicros(99));
+            stage.putDouble("maxUs", histogram.getMaxMicros());
+            stages.putMap(RenderMetrics.STAGE_NAMES[i], stage);
+        }
+
+        WritableMap result = new WritableNativeMap();
+        result.putMap("counters", counters);
+        result.putMap("stages", stages);
+        promise.resolve(result);
+    }
+
+    @Override
+    @ReactMethod
+    public void getQuoteCount(Promise promise) {
+        promise.resolve(QuoteRepository.getInstance(getReactApplicationContext()).size());
+    }
+
+    @Override
+    @ReactMethod
+    public void getQuotes(double offset, double limit, Promise promise) {
+        getQuotes((int) offset, (int) limit, promise);
+    }
+
+    private void getQuotes(int offset, int limit, Promise promise) {
+        try {
+            List<Quote> page = QuoteRepository.getInstance(getReactApplicationContext()).getPage(offset, limit);
+
+            WritableArray result = new WritableNativeArray();
+            for (int i = 0; i < page.size(); i++) {
+                Quote quote = page.get(i);
+                if (quote == null) {
+                    continue;
+                }
+                WritableMap item = new WritableNativeMap();
+                item.putInt("index", offset + i);
+                item.putString("text", quote.text);
+                item.putString("author", quote.author);
+                result.pushMap(item);
+            }
+
+            promise.resolve(result);
+        } catch (Exception e) {
+            promise.reject("GET_QUOTES_ERROR", "Failed to get quotes: " + e.getMessage());
+        }
+    }
+
+    @Override
+    @ReactMethod
+    public void searchQuotes(String query, double offset, double limit, Promise promise) {
+        final Context context = getReactApplicationContext();
+        searchExecutor.execute(() -> {
+            try {
+                QuoteRepository repository = QuoteRepository.getInstance(context);
+                QuoteSearchIndex.Result found = repository.search(query, (int) offset, (int) limit);
+
+                WritableArray items = new WritableNativeArray();
+                for (int index : found.indexes) {
+                    Quote quote = repository.get(index);
+                    if (quote == null) {
+                        continue;
+                    }
+                    WritableMap item = new WritableNativeMap();
+                    item.putInt("index", index);
+                    item.putString("text", quote.text);
+                    item.putString("author", quote.author);
+                    items.pushMap(item);
+                }
+
+                WritableMap result = new WritableNativeMap();
+                result.putInt("total", found.total);
+                result.putArray("items", items);
+                promise.resolve(result);
+            } catch (Exception e) {
+                promise.reject("SEARCH_ERROR", "Failed to search quotes: " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    @ReactMethod
+    public void importQuotes(String uri, Promise promise) {
+        if (!importRunning.compareAndSet(false, true)) {
+            promise.reject("IMPORT_IN_PROGRESS", "Another import is already running");
+            return;
+        }
+        importCancelled.set(false);
+        final Context context = getReactApplicationContext();
+        importExecutor.execute(() -> {
+            QuoteRepository repository = QuoteRepository.getInstance(context);
+            try (InputStream input = context.getContentResolver().openInputStream(Uri.parse(uri));
+                    QuoteStoreWriter writer = new QuoteStoreWriter(repository.getLocalStoreFile())) {
+                if (input == null) {
+                    throw new FileNotFoundException(uri);
+                }
+                QuoteImporter importer = new QuoteImporter(writer, importCancelled, this::emitImportProgress);
+                importer.read(input);
+                if (importer.getImported() == 0) {
+                    promise.reject("IMPORT_EMPTY", "No valid quotes found in " + uri);
+                    return;
+                }
+                writer.commit();
+                repository.release();
+                // Prepared next quotes come from the old corpus
+                PreparedQuotes.getInstance(context).clear();
+                // Indexed in a second pass over the committed store, so the import's
+                // heap stays flat whatever the file size
+                warmSearchIndex(context);
+                // Widgets still show quotes from the old corpus
+                WidgetRenderExecutor.request(context, getInstalledWidgetIds(context), false, null);
+
+                WritableMap result = new WritableNativeMap();
+                result.putInt("imported", importer.getImported());
+                result.putInt("skipped", importer.getSkipped());
+                promise.resolve(result);
+            } catch (CancellationException e) {
+                promise.reject("IMPORT_CANCELLED", "Import cancelled");
+            } catch (Exception e) {
+                WidgetLog.e("Error importing quotes: " + e.getMessage(), e);
+                promise.reject("IMPORT_ERROR", "Failed to import quotes: " + e.getMessage());
+            } finally {
+                importRunning.set(false);
+            }
+        });
+    }
+
+    @Override
+    @ReactMethod
+    public void cancelImport(Promise promise) {
+        importCancelled.set(true);
+        promise.resolve(importRunning.get());
+    }
+
+    private void emitImportProgress(int imported, int skipped) {
+        WritableMap event = new WritableNativeMap();
+        event.putInt("imported", imported);
+        event.putInt("skipped", skipped);
+        emit(EVENT_IMPORT_PROGRESS, event);
+    }
+
+    private void emit(String eventName, WritableMap event) {
+        ReactApplicationContext context = getReactApplicationContext();
+        if (!context.hasActiveReactInstance()) {
+            return;
+        }
+        context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(eventName, event);
+    }
+
+    @Override
+    @ReactMethod
+    public void addListener(String eventName) {
+        // Required for NativeEventEmitter
+    }
+
+    @Override
+    @ReactMethod
+    public void removeListeners(double count) {
+        // Required for NativeEventEmitter
+    }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.quotewidgetpro.widget;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Color;
+import android.os.Build;
+import android.util.TypedValue;
+
+/**
+ * Resolves the "device" text and background colors from the current theme.
+ * Resolution goes through theme attributes, so the result is cached and only
+ * redone when the night-mode bit of uiMode changes or the cache is dropped,
+ * e.g. after a wallpaper change shifts the dynamic colors.
+ */
+final class DeviceColors {
+    private static final class Resolved {
+        final int uiModeKey;
+        final int textColor;
+        final int backgroundColor;
+
+        Resolved(int uiModeKey, int textColor, int backgroundColor) {
+            this.uiModeKey = uiModeKey;
+            this.textColor = textColor;
+            this.backgroundColor = backgroundColor;
+        }
+    }
+
+    private static volatile Resolved cached;
+
+    private DeviceColors() {
+    }
+
+    static int getTextColor(Context context) {
+        return get(context).textColor;
+    }
+
+    static int getBackgroundColor(Context context) {
+        return get(context).backgroundColor;
+    }
+
+    static void invalidate() {
+        cached = null;
+    }
+
+    private static Resolved get(Context context) {
+        int key = uiModeKey(context);
+        Resolved resolved = cached;
+        if (resolved == null || resolved.uiModeKey != key) {
+            resolved = new Resolved(key, resolveTextColor(context), resolveBackgroundColor(context));
+            cached = resolved;
+        }
+        return resolved;
+    }
+
+    /** Night-mode bit of the current uiMode, the part of the configuration the colors follow. */
+    static int uiModeKey(Context context) {
+        return context.getResources().getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
+    }
+
+    private static int resolveTextColor(Context context) {
+        try {
+            // For Android 12+ (API 31+), use Material You dynamic colors
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                // Try to get Material You text color
+                TypedValue typedValue = new TypedValue();
+                if (context.getTheme().resolveAttribute(android.R.attr.textColorPrimary, typedValue, true)) {
+                    if (typedValue.resourceId != 0) {
+                        return context.getResources().getColor(typedValue.resourceId, context.getTheme());
+                    } else {
+                        return typedValue.data;
+                    }
+                }
+            }
+
+            // Fallback to system text color
+            TypedValue typedValue = new TypedValue();
+            if (context.getTheme().resolveAttribute(android.R.attr.textColorPrimary, typedValue, true)) {
+                return typedValue.data;
+            }
+        } catch (Exception e) {
+            WidgetLog.e("Error getting device text color: " + e.getMessage());
+        }
+
+        // Final fallback based on dark mode
+        int nightMode = context.getResources().getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        return (nightMode == Configuration.UI_MODE_NIGHT_YES) ? Color.WHITE : Color.BLACK;
+    }
+
+    private static int resolveBackgroundColor(Context context) {
+        try {
+            // For Android 12+ (API 31+), use Material You dynamic colors
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                // Try to get Material You background color
+                TypedValue typedValue = new TypedValue();
+                if (context.getTheme().resolveAttribute(android.R.attr.colorBackground, typedValue, true)) {
+                    if (typedValue.resourceId != 0) {
+                        return context.getResources().getColor(typedValue.resourceId, context.getTheme());
+                    } else {
+                        return typedValue.data;
+                    }
+                }
+            }
+
+            // Fallback to window background
+            TypedValue typedValue = new TypedValue();
+            if (context.getTheme().resolveAttribute(android.R.attr.windowBackground, typedValue, true)) {
+                if (typedValue.type >= TypedValue.TYPE_FIRST_COLOR_INT
+                        && typedValue.type <= TypedValue.TYPE_LAST_COLOR_INT) {
+                    return typedValue.data;
+                }
+            }
+        } catch (Exception e) {
+            WidgetLog.e("Error getting device background color: " + e.getMessage());
+        }
+
+        // Final fallback based on dark mode
+        int nightMode = context.getResources().getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        return (nightMode == Configuration.UI_MODE_NIGHT_YES) ? Color.parseColor("#1F1F1F") : Color.WHITE;
+    }
+}
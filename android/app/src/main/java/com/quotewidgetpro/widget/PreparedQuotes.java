@@ -0,0 +1,265 @@
+package com.quotewidgetpro.widget;
+
+import android.content.Context;
+import android.util.SparseArray;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The back buffer of each widget: the quote it will show next, already
+ * picked, fitted and styled, kept as one small file per widget. Right after a
+ * widget is pushed its next record is prepared in the background, so the
+ * next alarm only has to read the record and push it instead of resolving
+ * settings, opening the corpus and measuring text while the device is
+ * briefly awake.
+ *
+ * A record is dropped as soon as anything it was built from may have
+ * changed: the widget's settings or the defaults, the corpus, or the app
+ * itself (hosts send onUpdate after installs, updates and reboots). Records
+ * for daily widgets and for widgets following the device theme also say
+ * which day, and which night mode and wallpaper, they were built for, and
+ * are ignored once those no longer hold.
+ */
+public final class PreparedQuotes {
+    private static final String DIR_NAME = "widget_prepared";
+    private static final String EXTENSION = ".rec";
+
+    private static PreparedQuotes instance;
+
+    private final File dir;
+    private final SparseArray<Record> records = new SparseArray<>();
+    // Bumped by every invalidation, so a record built from what was just invalidated is not saved
+    private int generation;
+
+    /** Everything needed to push a widget's next quote without looking anything up. */
+    static final class Record {
+        private static final int VERSION = 2;
+        // Record for a widget whose quote doesn't depend on the date
+        static final long ANY_DAY = Long.MIN_VALUE;
+        // Record for a widget whose colors don't depend on the night mode
+        static final int ANY_UI_MODE = -1;
+        // Record whose colors don't depend on the wallpaper
+        static final int ANY_WALLPAPER = -1;
+
+        final int quoteIndex;
+        final int corpusVersion;
+        final int sizeBucket;
+        final long day;
+        final int uiModeKey;
+        final int wallpaperId;
+        final String text;
+        final String author;
+        final float textSize;
+        final int textColor;
+        final int fontSize;
+        final int borderRadius;
+        final int backgroundColor;
+        final int backgroundAlpha;
+        final String fontFamily;
+        final String fontWeight;
+
+        Record(int quoteIndex, int corpusVersion, int sizeBucket, long day, int uiModeKey, int wallpaperId,
+                String text, String author, float textSize, int textColor, int fontSize, int borderRadius,
+                int backgroundColor, int backgroundAlpha, String fontFamily, String fontWeight) {
+            this.quoteIndex = quoteIndex;
+            this.corpusVersion = corpusVersion;
+            this.sizeBucket = sizeBucket;
+            this.day = day;
+            this.uiModeKey = uiModeKey;
+            this.wallpaperId = wallpaperId;
+            this.text = text;
+            this.author = author;
+            this.textSize = textSize;
+            this.textColor = textColor;
+            this.fontSize = fontSize;
+            this.borderRadius = borderRadius;
+            this.backgroundColor = backgroundColor;
+            this.backgroundAlpha = backgroundAlpha;
+            this.fontFamily = fontFamily;
+            this.fontWeight = fontWeight;
+        }
+
+        /** Whether the record's colors were taken from the device theme or wallpaper. */
+        boolean isThemed() {
+            return uiModeKey != ANY_UI_MODE || wallpaperId != ANY_WALLPAPER;
+        }
+
+        /**
+         * Whether the record still applies on local {@code day}, in night mode
+         * {@code uiModeKey} with wallpaper {@code wallpaperId}. The last two
+         * are only compared for themed records.
+         */
+        boolean isCurrent(long day, int uiModeKey, int wallpaperId) {
+            return (this.day == ANY_DAY || this.day == day)
+                    && (this.uiModeKey == ANY_UI_MODE || this.uiModeKey == uiModeKey)
+                    && (this.wallpaperId == ANY_WALLPAPER || this.wallpaperId == wallpaperId);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(VERSION);
+            out.writeInt(quoteIndex);
+            out.writeInt(corpusVersion);
+            out.writeInt(sizeBucket);
+            out.writeLong(day);
+            out.writeInt(uiModeKey);
+            out.writeInt(wallpaperId);
+            out.writeUTF(text);
+            out.writeUTF(author);
+            out.writeFloat(textSize);
+            out.writeInt(textColor);
+            out.writeInt(fontSize);
+            out.writeInt(borderRadius);
+            out.writeInt(backgroundColor);
+            out.writeInt(backgroundAlpha);
+            out.writeUTF(fontFamily);
+            out.writeUTF(fontWeight);
+        }
+
+        /** Returns null for a record written by another version. */
+        static Record readFrom(DataInputStream in) throws IOException {
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            return new Record(in.readInt(), in.readInt(), in.readInt(), in.readLong(), in.readInt(), in.readInt(),
+                    in.readUTF(), in.readUTF(), in.readFloat(), in.readInt(), in.readInt(), in.readInt(),
+                    in.readInt(), in.readInt(), in.readUTF(), in.readUTF());
+        }
+    }
+
+    private PreparedQuotes(Context context) {
+        dir = new File(context.getFilesDir(), DIR_NAME);
+        if (!dir.isDirectory()) {
+            dir.mkdirs();
+        }
+    }
+
+    public static synchronized PreparedQuotes getInstance(Context context) {
+        if (instance == null) {
+            instance = new PreparedQuotes(context.getApplicationContext() != null
+                    ? context.getApplicationContext()
+                    : context);
+        }
+        return instance;
+    }
+
+    /** Returns the widget's record, or null if it has none. */
+    Record get(int widgetId) {
+        synchronized (records) {
+            Record record = records.get(widgetId);
+            if (record == null) {
+                record = read(widgetId);
+                if (record != null) {
+                    records.put(widgetId, record);
+                }
+            }
+            return record;
+        }
+    }
+
+    /**
+     * Returns the widget's record and removes it, so a record is pushed at
+     * most once even if preparing the next one never gets to run.
+     */
+    Record take(int widgetId) {
+        synchronized (records) {
+            Record record = get(widgetId);
+            if (record != null) {
+                records.remove(widgetId);
+                fileFor(widgetId).delete();
+            }
+            return record;
+        }
+    }
+
+    /** Current generation, to pass back to {@link #put} once a record is built. */
+    int getGeneration() {
+        synchronized (records) {
+            return generation;
+        }
+    }
+
+    /**
+     * Saves the widget's record unless something was invalidated since
+     * {@code generation} was read.
+     */
+    void put(int widgetId, Record record, int generation) {
+        synchronized (records) {
+            if (generation != this.generation) {
+                return;
+            }
+            records.put(widgetId, record);
+            write(widgetId, record);
+        }
+    }
+
+    /** Drops the widget's record; widget 0, the defaults, drops every record. */
+    public void invalidate(int widgetId) {
+        if (widgetId == 0) {
+            clear();
+            return;
+        }
+        synchronized (records) {
+            generation++;
+            records.remove(widgetId);
+            fileFor(widgetId).delete();
+        }
+    }
+
+    /** Drops every record, e.g. after the corpus changed. */
+    public void clear() {
+        synchronized (records) {
+            generation++;
+            records.clear();
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private File fileFor(int widgetId) {
+        return new File(dir, widgetId + EXTENSION);
+    }
+
+    private Record read(int widgetId) {
+        File file = fileFor(widgetId);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return Record.readFrom(in);
+        } catch (IOException e) {
+            WidgetLog.e("Error reading prepared quote for widget " + widgetId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Not synced to disk: a record lost in a crash only means one full render
+    private void write(int widgetId, Record record) {
+        File target = fileFor(widgetId);
+        File temp = new File(dir, widgetId + EXTENSION + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            record.writeTo(out);
+        } catch (IOException e) {
+            temp.delete();
+            records.remove(widgetId);
+            WidgetLog.e("Error saving prepared quote for widget " + widgetId + ": " + e.getMessage());
+            return;
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            target.delete();
+            records.remove(widgetId);
+            WidgetLog.e("Error replacing prepared quote for widget " + widgetId);
+        }
+    }
+}
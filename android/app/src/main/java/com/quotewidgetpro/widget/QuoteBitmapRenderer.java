@@ -0,0 +1,159 @@
+package com.quotewidgetpro.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.DisplayMetrics;
+import android.util.LruCache;
+
+import com.quotewidgetpro.Quote;
+
+/**
+ * Draws a quote and its author into a Bitmap with a bundled font, for widgets
+ * whose font RemoteViews can't apply to a TextView.
+ *
+ * Text is normally drawn as an ALPHA_8 mask and colored by tinting the
+ * ImageView, so a bitmap costs one byte per pixel and theme or color changes
+ * reuse it. Text with characters that may render in color, such as emoji,
+ * falls back to ARGB_8888 with the colors baked in. Density is lowered when
+ * needed to keep every bitmap under {@link #MAX_BITMAP_BYTES}, well inside
+ * the binder limit on a RemoteViews update.
+ *
+ * Bitmaps are cached by quote, text style and size bucket, so a repeated
+ * render allocates nothing.
+ */
+final class QuoteBitmapRenderer {
+    static final int MAX_BITMAP_BYTES = 512 * 1024;
+
+    private static final int CACHE_MAX_BYTES = 4 * 1024 * 1024;
+    private static final float AUTHOR_ALPHA = 0.7f;
+
+    private static final LruCache<String, Bitmap> cache = new LruCache<String, Bitmap>(CACHE_MAX_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getAllocationByteCount();
+        }
+    };
+
+    private QuoteBitmapRenderer() {
+    }
+
+    static long getCacheHits() {
+        return cache.hitCount();
+    }
+
+    static long getCacheMisses() {
+        return cache.missCount();
+    }
+
+    /** Whether the text is drawn as a mask that must be tinted with the style's colors. */
+    static boolean isMask(Quote quote) {
+        return !mayRenderInColor(quote.text) && !mayRenderInColor(quote.author);
+    }
+
+    /**
+     * Returns the bitmap for {@code quote} at the given size bucket and text
+     * size. {@code quoteKey} identifies the quote in the cache (index and
+     * corpus version).
+     */
+    static Bitmap render(Context context, WidgetStyle style, Quote quote, String quoteKey, int sizeBucket,
+            float textSizeSp) {
+        boolean mask = isMask(quote);
+        String key = quoteKey + "|" + style.textKey(mask) + "|" + sizeBucket + "|" + textSizeSp;
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null) {
+            bitmap = draw(context, style, quote, mask, sizeBucket, textSizeSp);
+            cache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    private static Bitmap draw(Context context, WidgetStyle style, Quote quote, boolean mask, int sizeBucket,
+            float textSizeSp) {
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        float fontScale = context.getResources().getConfiguration().fontScale;
+        int widthDp = WidgetSizes.contentWidthDp(sizeBucket);
+        int heightDp = WidgetSizes.contentHeightDp(sizeBucket);
+
+        // Lower the density until the bitmap fits the budget; ImageView scales it back up
+        Bitmap.Config config = mask ? Bitmap.Config.ALPHA_8 : Bitmap.Config.ARGB_8888;
+        int bytesPerPixel = mask ? 1 : 4;
+        float density = metrics.density;
+        float pixels = widthDp * density * heightDp * density;
+        if (pixels * bytesPerPixel > MAX_BITMAP_BYTES) {
+            density *= (float) Math.sqrt(MAX_BITMAP_BYTES / (pixels * bytesPerPixel));
+        }
+        int width = Math.max(1, (int) (widthDp * density));
+        int height = Math.max(1, (int) (heightDp * density));
+
+        TextPaint quotePaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        quotePaint.setTypeface(style.typeface);
+        quotePaint.setTextSize(textSizeSp * fontScale * density);
+        quotePaint.setColor(mask ? Color.WHITE : style.textColor);
+
+        TextPaint authorPaint = new TextPaint(quotePaint);
+        authorPaint.setTextSize(textSizeSp * QuoteTextSizer.AUTHOR_SCALE * fontScale * density);
+        if (mask) {
+            authorPaint.setAlpha(Math.round(255 * AUTHOR_ALPHA));
+        } else {
+            authorPaint.setColor(style.authorColor);
+        }
+
+        StaticLayout author = StaticLayout.Builder
+                .obtain("— " + quote.author, 0, quote.author.length() + 2, authorPaint, width)
+                .setAlignment(Layout.Alignment.ALIGN_CENTER)
+                .setMaxLines(1)
+                .setEllipsize(TextUtils.TruncateAt.END)
+                .build();
+        int quoteHeight = Math.max(0, height - author.getHeight());
+        StaticLayout text = layoutQuote(quote.text, quotePaint, width, quoteHeight,
+                QuoteTextSizer.LINE_SPACING_DP * density);
+
+        Bitmap bitmap = Bitmap.createBitmap(width, height, config);
+        Canvas canvas = new Canvas(bitmap);
+        // Center the block vertically, like the TextView layout does
+        float top = Math.max(0, (height - text.getHeight() - author.getHeight()) / 2f);
+        canvas.save();
+        canvas.translate(0, top);
+        text.draw(canvas);
+        canvas.translate(0, text.getHeight());
+        author.draw(canvas);
+        canvas.restore();
+        return bitmap;
+    }
+
+    /** Lays out the quote, ellipsizing the last line that fits in {@code maxHeight}. */
+    private static StaticLayout layoutQuote(String text, TextPaint paint, int width, int maxHeight,
+            float spacing) {
+        StaticLayout layout = StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+                .setAlignment(Layout.Alignment.ALIGN_CENTER)
+                .setLineSpacing(spacing, 1f)
+                .build();
+        if (layout.getHeight() <= maxHeight) {
+            return layout;
+        }
+        // Lines above the one containing maxHeight fit completely
+        int maxLines = Math.max(1, layout.getLineForVertical(maxHeight));
+        return StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+                .setAlignment(Layout.Alignment.ALIGN_CENTER)
+                .setLineSpacing(spacing, 1f)
+                .setMaxLines(maxLines)
+                .setEllipsize(TextUtils.TruncateAt.END)
+                .build();
+    }
+
+    private static boolean mayRenderInColor(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isSurrogate(c) || Character.getType(c) == Character.OTHER_SYMBOL) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
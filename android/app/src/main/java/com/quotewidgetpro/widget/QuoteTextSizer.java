@@ -0,0 +1,111 @@
+package com.quotewidgetpro.widget;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.LruCache;
+
+import com.quotewidgetpro.Quote;
+
+/**
+ * Picks the text size for a quote in a widget with {@link TextFitter},
+ * measuring with StaticLayout the way the widget's TextViews (or
+ * QuoteBitmapRenderer) lay it out. The stored font_size is the base size; a
+ * fit may shrink it to {@link #MIN_SP} or grow it to twice the base.
+ *
+ * Results are memoized per quote, size bucket and font, so re-rendering a
+ * quote that has been fitted before measures nothing.
+ *
+ * Before a quote is picked, {@link #getMinLength} and {@link #getMaxLength}
+ * estimate with {@link LengthBudget} which quote lengths suit the widget:
+ * none so long the fit has to go below {@link #READABLE_SCALE} of the base
+ * size, none so short it fills under {@link #MIN_FILL} of the box even at
+ * the largest size.
+ */
+final class QuoteTextSizer {
+    static final float MIN_SP = 10f;
+    static final float AUTHOR_SCALE = 0.8f;
+    static final float LINE_SPACING_DP = 2f;
+    static final float READABLE_SCALE = 0.75f;
+    static final float MIN_FILL = 0.25f;
+
+    private static final int MEMO_SIZE = 512;
+
+    private static final LruCache<String, Float> memo = new LruCache<>(MEMO_SIZE);
+
+    private QuoteTextSizer() {
+    }
+
+    static long getMemoHits() {
+        return memo.hitCount();
+    }
+
+    static long getMemoMisses() {
+        return memo.missCount();
+    }
+
+    /** Longest quote, in chars, that fits the widget at a readable size. */
+    static int getMaxLength(Context context, WidgetStyle style, int sizeBucket) {
+        return capacity(context, Math.max(Math.min(MIN_SP, style.fontSize), style.fontSize * READABLE_SCALE),
+                sizeBucket);
+    }
+
+    /** Shortest quote, in chars, that doesn't leave the widget mostly empty. */
+    static int getMinLength(Context context, WidgetStyle style, int sizeBucket) {
+        return (int) (capacity(context, style.fontSize * 2f, sizeBucket) * MIN_FILL);
+    }
+
+    private static int capacity(Context context, float textSp, int sizeBucket) {
+        float fontScale = context.getResources().getConfiguration().fontScale;
+        return LengthBudget.capacity(WidgetSizes.contentWidthDp(sizeBucket), WidgetSizes.contentHeightDp(sizeBucket),
+                textSp, textSp * AUTHOR_SCALE, LINE_SPACING_DP, fontScale);
+    }
+
+    static float getTextSize(Context context, WidgetStyle style, Quote quote, String quoteKey, int sizeBucket) {
+        String key = quoteKey + "|" + style.fontKey() + "|" + sizeBucket;
+        Float cached = memo.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        float density = context.getResources().getDisplayMetrics().density;
+        float fontScale = context.getResources().getConfiguration().fontScale;
+        int widthPx = Math.round(WidgetSizes.contentWidthDp(sizeBucket) * density);
+        int heightPx = Math.round(WidgetSizes.contentHeightDp(sizeBucket) * density);
+        float minSp = Math.min(MIN_SP, style.fontSize);
+        float size = TextFitter.fit(new LayoutMeasurer(style.typeface, density, fontScale), quote.text,
+                "— " + quote.author, widthPx, heightPx, minSp, style.fontSize * 2f);
+        memo.put(key, size);
+        return size;
+    }
+
+    /** Measures with the same paint, spacing and padding as the widget layout. */
+    static final class LayoutMeasurer implements TextFitter.Measurer {
+        private final TextPaint paint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        private final float density;
+        private final float fontScale;
+
+        LayoutMeasurer(Typeface typeface, float density, float fontScale) {
+            paint.setTypeface(typeface);
+            this.density = density;
+            this.fontScale = fontScale;
+        }
+
+        @Override
+        public int measureHeight(String text, String author, float textSizeSp, int widthPx) {
+            paint.setTextSize(textSizeSp * fontScale * density);
+            StaticLayout quoteLayout = StaticLayout.Builder.obtain(text, 0, text.length(), paint, widthPx)
+                    .setAlignment(Layout.Alignment.ALIGN_CENTER)
+                    .setLineSpacing(LINE_SPACING_DP * density, 1f)
+                    .build();
+            // The author is a single line, so its height only depends on the size
+            paint.setTextSize(textSizeSp * AUTHOR_SCALE * fontScale * density);
+            StaticLayout authorLayout = StaticLayout.Builder.obtain(author, 0, author.length(), paint, widthPx)
+                    .setMaxLines(1)
+                    .build();
+            return quoteLayout.getHeight() + authorLayout.getHeight();
+        }
+    }
+}
@@ -2,8 +2,8 @@ package com.quotewidgetpro.widget;
 
 import android.app.Activity;
 import android.appwidget.AppWidgetManager;
+import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.os.Bundle;
 
@@ -34,9 +34,15 @@ public class QuoteWidgetConfigureActivity extends Activity {
         // Save default preferences for the widget
         saveDefaultPreferences();
         
-        // Update the widget
-        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(this);
-        QuoteWidgetProvider.updateAppWidget(this, appWidgetManager, appWidgetId);
+        // Render and schedule the widget off the main thread
+        final int newWidgetId = appWidgetId;
+        final Context context = getApplicationContext();
+        WidgetRenderExecutor.submit(context, null, () -> {
+            WidgetUpdateScheduler.getInstance(context).schedule(new int[] { newWidgetId });
+            return new int[] { newWidgetId };
+        });
+        
+        WidgetEvents.added(appWidgetId);
         
         // Return success
         Intent resultValue = new Intent();
@@ -48,36 +54,19 @@ public class QuoteWidgetConfigureActivity extends Activity {
     }
     
     private void saveDefaultPreferences() {
-        SharedPreferences prefs = getSharedPreferences("widget_prefs", MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        
-        // Use default settings if they exist, otherwise use hardcoded defaults
-        String defaultFontFamily = prefs.getString("font_family_0", "sans-serif");
-        int defaultFontSize = prefs.getInt("font_size_0", 14);
-        String defaultTextColorType = prefs.getString("text_color_type_0", "device");
-        int defaultTextColor = prefs.getInt("text_color_0", Color.BLACK);
-        boolean defaultIsBold = prefs.getBoolean("is_bold_0", false);
-        String defaultBackgroundColorType = prefs.getString("background_color_type_0", "device");
-        int defaultBackgroundColor = prefs.getInt("background_color_0", Color.WHITE);
-        String defaultBackgroundType = prefs.getString("background_type_0", "solid");
-        float defaultBackgroundOpacity = prefs.getFloat("background_opacity_0", 1.0f);
-        int defaultBorderRadius = prefs.getInt("border_radius_0", 12);
-        int defaultRefreshInterval = prefs.getInt("refresh_interval_0", 60);
-        boolean defaultAutoTheme = prefs.getBoolean("auto_theme_0", false);
-        
-        editor.putString("font_family_" + appWidgetId, defaultFontFamily);
-        editor.putInt("font_size_" + appWidgetId, defaultFontSize);
-        editor.putString("text_color_type_" + appWidgetId, defaultTextColorType);
-        editor.putInt("text_color_" + appWidgetId, defaultTextColor);
-        editor.putBoolean("is_bold_" + appWidgetId, defaultIsBold);
-        editor.putString("background_color_type_" + appWidgetId, defaultBackgroundColorType);
-        editor.putInt("background_color_" + appWidgetId, defaultBackgroundColor);
-        editor.putString("background_type_" + appWidgetId, defaultBackgroundType);
-        editor.putFloat("background_opacity_" + appWidgetId, defaultBackgroundOpacity);
-        editor.putInt("border_radius_" + appWidgetId, defaultBorderRadius);
-        editor.putInt("refresh_interval_" + appWidgetId, defaultRefreshInterval);
-        editor.putBoolean("auto_theme_" + appWidgetId, defaultAutoTheme);
-        
-        editor.apply();
+        // Start from the current defaults (widget 0), or the built-in ones
+        WidgetSettingsStore store = WidgetSettingsStore.getInstance(this);
+        WidgetSettingsRecord defaults = store.get(0);
+        WidgetSettingsRecord record = WidgetSettingsRecord.of(WidgetConfigResolver.get(this, 0));
+
+        // New widgets follow the device theme unless defaults say otherwise
+        if (!defaults.has(WidgetSettingsRecord.TEXT_COLOR)) {
+            record.setTextColor(true, Color.BLACK);
+        }
+        if (!defaults.has(WidgetSettingsRecord.BACKGROUND_COLOR)) {
+            record.setBackgroundColor(true, Color.WHITE);
+        }
+
+        store.update(appWidgetId, record);
     }
 }
\ No newline at end of file
@@ -1,36 +1,94 @@
 package com.quotewidgetpro.widget;
 
-import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.content.res.Configuration;
 import android.graphics.Color;
-import android.graphics.Typeface;
 import android.graphics.drawable.GradientDrawable;
-import android.os.Build;
+import android.os.Bundle;
 import android.os.SystemClock;
-import android.text.SpannableString;
-import android.text.Spanned;
-import android.text.style.StyleSpan;
-import android.text.style.TypefaceSpan;
+import android.util.SparseArray;
 import android.util.TypedValue;
+import android.view.View;
 import android.widget.RemoteViews;
 
+import com.quotewidgetpro.DailyQuote;
 import com.quotewidgetpro.MainActivity;
+import com.quotewidgetpro.Quote;
+import com.quotewidgetpro.QuoteBitSet;
+import com.quotewidgetpro.QuoteLengthIndex;
+import com.quotewidgetpro.QuoteRepository;
+import com.quotewidgetpro.QuoteSelector;
 import com.quotewidgetpro.R;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.InputStream;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class QuoteWidgetProvider extends AppWidgetProvider {
     private static final String ACTION_UPDATE_WIDGET = "com.quotewidgetpro.ACTION_UPDATE_WIDGET";
+    // Theme and wallpaper changes tend to arrive in bursts
+    private static final long THEME_REFRESH_DEBOUNCE_MILLIS = 500;
+    // Fewer quotes than this suiting a widget's size and it picks from all it may show
+    private static final int MIN_SIZED_QUOTES = 10;
+    // One per BackgroundShapes.radiusIndex, square first
+    private static final int[] BACKGROUND_DRAWABLES = {
+            R.drawable.widget_background,
+            R.drawable.widget_background_8dp,
+            R.drawable.widget_background_16dp,
+            R.drawable.widget_background_24dp,
+            R.drawable.widget_background_32dp,
+            R.drawable.widget_background_40dp,
+            R.drawable.widget_background_48dp,
+            R.drawable.widget_background_56dp,
+    };
+
+    // Style and quote last pushed to each widget. Kept in memory only, so the
+    // first render in a new process is always a full update.
+    private static final SparseArray<PushedState> pushed = new SparseArray<>();
+
+    // Each filtered widget's matches limited to the lengths that suit its size. Rebuilt only when
+    // the matches or the length run change, so renders don't build or look up a set per filter.
+    private static final SparseArray<SizedMatches> sizedMatches = new SparseArray<>();
+
+    private static final class SizedMatches {
+        final QuoteBitSet matches;
+        final QuoteLengthIndex lengths;
+        final int fromRank;
+        final int toRank;
+        final QuoteBitSet sized;
+
+        SizedMatches(QuoteBitSet matches, QuoteLengthIndex lengths, int fromRank, int toRank) {
+            this.matches = matches;
+            this.lengths = lengths;
+            this.fromRank = fromRank;
+            this.toRank = toRank;
+            this.sized = matches.withinRanks(lengths, fromRank, toRank);
+        }
+
+        boolean isFor(QuoteBitSet matches, QuoteLengthIndex lengths, int fromRank, int toRank) {
+            return this.matches == matches && this.lengths == lengths && this.fromRank == fromRank
+                    && this.toRank == toRank;
+        }
+    }
+
+    private static final class PushedState {
+        final WidgetStyle style;
+        final int quoteIndex;
+        final int corpusVersion;
+        final int sizeBucket;
+
+        PushedState(WidgetStyle style, int quoteIndex, int corpusVersion, int sizeBucket) {
+            this.style = style;
+            this.quoteIndex = quoteIndex;
+            this.corpusVersion = corpusVersion;
+            this.sizeBucket = sizeBucket;
+        }
+    }
 
     @Override
     public void onEnabled(Context context) {
@@ -46,395 +104,604 @@ public class QuoteWidgetProvider extends AppWidgetProvider {
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        for (int appWidgetId : appWidgetIds) {
-            updateAppWidget(context, appWidgetManager, appWidgetId);
-            scheduleNextUpdate(context, appWidgetId);
-        }
+        // The host may be asking because it lost the views, so push them in full
+        forgetPushedState(appWidgetIds);
+        WidgetRenderExecutor.submit(context, goAsync(), () -> {
+            refreshThemedWidgetsIfChanged(context);
+            // Sent after installs and updates too, when the app or corpus may have changed under the records
+            for (int appWidgetId : appWidgetIds) {
+                PreparedQuotes.getInstance(context).invalidate(appWidgetId);
+            }
+            WidgetUpdateScheduler.getInstance(context).schedule(appWidgetIds);
+            return appWidgetIds;
+        });
     }
 
     @Override
     public void onReceive(Context context, Intent intent) {
+        long start = SystemClock.uptimeMillis();
+        ThemeWatcher.register(context);
         super.onReceive(context, intent);
 
-        if (ACTION_UPDATE_WIDGET.equals(intent.getAction())) {
+        if (WidgetUpdateScheduler.ACTION_REFRESH_DUE.equals(intent.getAction())) {
+            // Refresh every widget whose bucket is due, in one batch
+            WidgetRenderExecutor.submit(context, goAsync(), () -> {
+                refreshThemedWidgetsIfChanged(context);
+                return WidgetUpdateScheduler.getInstance(context).collectDue();
+            });
+        } else if (Intent.ACTION_TIME_CHANGED.equals(intent.getAction())
+                || Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+            // The local date may have moved; daily widgets follow it and the alarm is re-armed
+            WidgetRenderExecutor.submit(context, goAsync(),
+                    () -> WidgetUpdateScheduler.getInstance(context).onClockChanged());
+        } else if (ACTION_UPDATE_WIDGET.equals(intent.getAction())) {
+            // Per-widget alarms from older versions; refresh and move the widget to its bucket
             int appWidgetId = intent.getIntExtra(AppWidgetManager.EXTRA_APPWIDGET_ID,
                     AppWidgetManager.INVALID_APPWIDGET_ID);
             if (appWidgetId != AppWidgetManager.INVALID_APPWIDGET_ID) {
-                AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-                updateAppWidget(context, appWidgetManager, appWidgetId);
-                scheduleNextUpdate(context, appWidgetId);
+                WidgetRenderExecutor.submit(context, goAsync(), () -> {
+                    WidgetUpdateScheduler.getInstance(context).schedule(new int[] { appWidgetId });
+                    return new int[] { appWidgetId };
+                });
             }
         }
+
+        WidgetRenderExecutor.recordMainThreadTime(SystemClock.uptimeMillis() - start);
+    }
+
+    @Override
+    public void onAppWidgetOptionsChanged(Context context, AppWidgetManager appWidgetManager, int appWidgetId,
+            Bundle newOptions) {
+        // Resized: refit the current quote to the new size without moving on to the next one
+        WidgetSizes.update(appWidgetId, newOptions);
+        WidgetRenderExecutor.redraw(context, new int[] { appWidgetId }, goAsync());
     }
 
     @Override
     public void onDeleted(Context context, int[] appWidgetIds) {
-        for (int appWidgetId : appWidgetIds) {
-            cancelScheduledUpdate(context, appWidgetId);
-            deleteWidgetPrefs(context, appWidgetId);
+        WidgetRenderExecutor.cancel(appWidgetIds);
+        WidgetEvents.deleted(appWidgetIds);
+        forgetPushedState(appWidgetIds);
+        WidgetSizes.remove(appWidgetIds);
+        synchronized (sizedMatches) {
+            for (int appWidgetId : appWidgetIds) {
+                sizedMatches.remove(appWidgetId);
+            }
         }
+        WidgetRenderExecutor.submit(context, goAsync(), () -> {
+            cancelScheduledUpdates(context, appWidgetIds);
+            for (int appWidgetId : appWidgetIds) {
+                deleteWidgetPrefs(context, appWidgetId);
+                QuoteSelector.getInstance(context).remove(appWidgetId);
+                PreparedQuotes.getInstance(context).invalidate(appWidgetId);
+            }
+            return new int[0];
+        });
     }
 
-    public static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
-        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.quote_widget_layout);
-
-        // Get widget preferences - fallback to default settings (id 0) if
-        // widget-specific settings don't exist
-        SharedPreferences prefs = context.getSharedPreferences("widget_prefs", Context.MODE_PRIVATE);
+    /**
+     * Re-renders, after a short debounce, only the widgets whose look depends
+     * on the device theme: auto-theme widgets and those using device colors.
+     */
+    static void refreshThemedWidgets(Context context, PendingResult result) {
+        WidgetRenderExecutor.submitDebounced(context, result, THEME_REFRESH_DEBOUNCE_MILLIS, false, () -> {
+            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+            int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, QuoteWidgetProvider.class));
+            List<Integer> themed = new ArrayList<>();
+            for (int appWidgetId : appWidgetIds) {
+                WidgetConfig config = WidgetConfigResolver.get(context, appWidgetId);
+                if (config.autoTheme || config.deviceTextColor || config.deviceBackgroundColor) {
+                    themed.add(appWidgetId);
+                }
+            }
+            // Same quotes, new colors
+            return toArray(themed);
+        });
+    }
 
-        // Check if widget-specific settings exist
-        boolean hasWidgetSettings = prefs.contains("font_family_" + appWidgetId);
-        String settingsSuffix = hasWidgetSettings ? "_" + appWidgetId : "_0";
+    /** Catches theme and wallpaper changes made while no process was running to hear them. */
+    private static void refreshThemedWidgetsIfChanged(Context context) {
+        if (ThemeWatcher.checkChanged(context)) {
+            refreshThemedWidgets(context, null);
+        }
+    }
 
-        String fontFamily = prefs.getString("font_family" + settingsSuffix, "sans-serif");
-        int fontSize = prefs.getInt("font_size" + settingsSuffix, 14);
+    public static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
+        updateAppWidgets(context, appWidgetManager, new int[] { appWidgetId });
+    }
 
-        // Try to get specific font weight, otherwise fallback to default (widget 0)
-        // font weight
-        String globalFontWeight = prefs.getString("font_weight_0", "400");
-        String fontWeight = prefs.getString("font_weight" + settingsSuffix, globalFontWeight);
+    /**
+     * Renders several widgets in one pass. Widgets are grouped by their
+     * resolved config so colors, background and text spans are worked out once
+     * per group, and widgets in a group that land on the same quote are pushed
+     * with a single RemoteViews.
+     */
+    public static void updateAppWidgets(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        render(context, appWidgetManager, appWidgetIds, true);
+    }
 
-        String backgroundType = prefs.getString("background_type" + settingsSuffix, "solid");
-        int borderRadius = prefs.getInt("border_radius" + settingsSuffix, 12);
-        float backgroundOpacity = prefs.getFloat("background_opacity" + settingsSuffix, 1.0f);
-        boolean autoTheme = prefs.getBoolean("auto_theme" + settingsSuffix, false);
+    /**
+     * Re-renders widgets with the quote they already show, for changes that
+     * affect only how it looks, such as a new size or theme.
+     */
+    public static void redrawAppWidgets(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        render(context, appWidgetManager, appWidgetIds, false);
+    }
 
-        // Get text color
-        int textColor;
-        String textColorType = prefs.getString("text_color_type" + settingsSuffix, "custom");
-        if ("device".equals(textColorType)) {
-            textColor = getDeviceTextColor(context);
-        } else {
-            textColor = prefs.getInt("text_color" + settingsSuffix, Color.BLACK);
+    private static void render(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds,
+            boolean advance) {
+        if (appWidgetIds.length == 0) {
+            return;
         }
-
-        // Get background color
-        int backgroundColor;
-        String backgroundColorType = prefs.getString("background_color_type" + settingsSuffix, "custom");
-        if ("device".equals(backgroundColorType)) {
-            backgroundColor = getDeviceBackgroundColor(context);
-        } else {
-            backgroundColor = prefs.getInt("background_color" + settingsSuffix, Color.WHITE);
+        RenderMetrics.count(RenderMetrics.RENDER_PASSES);
+        RenderMetrics.count(RenderMetrics.WIDGETS_RENDERED, appWidgetIds.length);
+        long start = RenderMetrics.begin(RenderMetrics.STAGE_RENDER);
+        try {
+            // Widgets moving on push the quote prepared for them; only the rest are worked out here
+            int[] remaining = advance
+                    ? pushPrepared(context, appWidgetManager, appWidgetIds)
+                    : appWidgetIds;
+            if (remaining.length > 0) {
+                renderGroups(context, appWidgetManager, groupByConfig(context, remaining), advance);
+            }
+        } finally {
+            RenderMetrics.end(RenderMetrics.STAGE_RENDER, start);
         }
+        // After this render's broadcasts are finished
+        WidgetRenderExecutor.runLater(() -> prepareNext(context, appWidgetManager, appWidgetIds));
+    }
 
-        // Debug logging
-        android.util.Log.d("QuoteWidget", "Widget " + appWidgetId + " settings: fontSize=" + fontSize +
-                ", textColor=" + String.format("#%08X", textColor) +
-                ", backgroundColor=" + String.format("#%08X", backgroundColor) +
-                ", borderRadius=" + borderRadius +
-                ", backgroundOpacity=" + backgroundOpacity +
-                ", fontWeight=" + fontWeight +
-                ", hasWidgetSettings=" + hasWidgetSettings);
-
-        // Get random quote
-        Quote quote = getRandomQuote(context);
-
-        // Update quote text
-        // Update quote text with styling
-        views.setTextViewText(R.id.quote_text, applyFontWeight(quote.text, fontWeight));
-        views.setTextViewText(R.id.quote_author, applyFontWeight("— " + quote.author, fontWeight)); // Apply same weight
-                                                                                                    // to author? Or
-                                                                                                    // keep it
-                                                                                                    // normal/italic?
-        // Author usually italic. Applying weight might overlap.
-        // Let's just set text for author normally as it has italic style in XML, but
-        // user might want bold.
-        // If we use TypefaceSpan it overrides fontFamily in XML but not style.
-        // Let's stick to simple text for author for now as user asked for font weight
-        // implementation generally.
-        // Reverting author to simple text to avoid conflict with italic, or applying
-        // generic weight?
-        // Let's just apply to quote text primarily.
-        views.setTextViewText(R.id.quote_author, "— " + quote.author);
-
-        // Apply text styling
-        views.setTextViewTextSize(R.id.quote_text, TypedValue.COMPLEX_UNIT_SP, fontSize);
-        views.setTextViewTextSize(R.id.quote_author, TypedValue.COMPLEX_UNIT_SP, fontSize * 0.8f);
-        views.setTextColor(R.id.quote_text, textColor);
-        views.setTextColor(R.id.quote_author, adjustColorOpacity(textColor, 0.7f));
-
-        // Note: Font family and bold are not applied here because RemoteViews doesn't
-        // support
-        // setTypeface() method. These settings should be configured in the XML layout
-        // instead.
+    /**
+     * Pushes every widget that has a current {@link PreparedQuotes} record
+     * straight from it, and returns the widgets that have none. Reads nothing
+     * but the records; each quote pushed is recorded as shown, moving its
+     * widget's cursor past it.
+     */
+    private static int[] pushPrepared(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        PreparedQuotes prepared = PreparedQuotes.getInstance(context);
+        QuoteSelector selector = QuoteSelector.getInstance(context);
+        long today = WidgetUpdateScheduler.today();
+        int uiModeKey = DeviceColors.uiModeKey(context);
+        // Read only if a themed record needs it
+        int wallpaperId = PreparedQuotes.Record.ANY_WALLPAPER;
+        PendingIntent openApp = null;
+        List<Integer> remaining = new ArrayList<>();
+        for (int appWidgetId : appWidgetIds) {
+            PreparedQuotes.Record record = prepared.take(appWidgetId);
+            if (record != null && record.isThemed() && wallpaperId == PreparedQuotes.Record.ANY_WALLPAPER) {
+                wallpaperId = WallpaperPalette.getWallpaperId(context);
+            }
+            if (record == null || !record.isCurrent(today, uiModeKey, wallpaperId)) {
+                remaining.add(appWidgetId);
+                continue;
+            }
 
-        // Apply background
-        applyBackground(context, views, backgroundColor, backgroundType, borderRadius, backgroundOpacity);
+            long start = System.nanoTime();
+            WidgetStyle style = WidgetStyle.restore(record.textColor, record.fontSize,
+                    getBackgroundDrawableForRadius(record.borderRadius), record.backgroundColor,
+                    record.backgroundAlpha, record.fontFamily, record.fontWeight);
+            Quote quote = new Quote(record.text, record.author);
+            PushedState last = recordPush(appWidgetId,
+                    new PushedState(style, record.quoteIndex, record.corpusVersion, record.sizeBucket));
+            boolean partial = last != null && last.style.equals(style);
+            long buildStart = RenderMetrics.begin(RenderMetrics.STAGE_BUILD_VIEWS);
+            RemoteViews views;
+            try {
+                if (partial) {
+                    // Host keeps the rest of the last full views; only swap the text
+                    views = new RemoteViews(context.getPackageName(), R.layout.quote_widget_layout);
+                } else {
+                    if (openApp == null) {
+                        openApp = getOpenAppIntent(context);
+                    }
+                    views = buildFrame(context, style, openApp);
+                }
+                setQuoteText(views, style, quote, record.textSize);
+            } finally {
+                RenderMetrics.end(RenderMetrics.STAGE_BUILD_VIEWS, buildStart);
+            }
+            RenderMetrics.count(partial ? RenderMetrics.PARTIAL_PUSHES : RenderMetrics.FULL_PUSHES);
+            RenderMetrics.count(RenderMetrics.PREPARED_PUSHES);
+            int[] ids = { appWidgetId };
+            push(appWidgetManager, ids, views, partial);
+            selector.setShown(appWidgetId, record.quoteIndex);
+            if (WidgetEvents.hasListener()) {
+                WidgetEvents.rendered(ids, record.quoteIndex, quote, (System.nanoTime() - start) / 1e6);
+            }
+        }
+        return toArray(remaining);
+    }
 
-        // Set up click to open app
-        Intent appIntent = new Intent(context, MainActivity.class);
-        appIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-        PendingIntent pendingIntent = PendingIntent.getActivity(context, appWidgetId,
-                appIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-        views.setOnClickPendingIntent(R.id.widget_container, pendingIntent);
+    /**
+     * Prepares the record each widget will push when it next moves on: its
+     * next quote, fitted and styled for it. Runs on the render thread right
+     * after a render. The pick leaves the widget's cursor alone until the
+     * record is pushed, so a record that is dropped or rebuilt, e.g. after a
+     * redraw, skips no quote. Bitmap-font widgets get no record, as their
+     * text is drawn at push time.
+     */
+    private static void prepareNext(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        PreparedQuotes prepared = PreparedQuotes.getInstance(context);
+        int generation = prepared.getGeneration();
+        QuoteRepository repository = QuoteRepository.getInstance(context);
+        QuoteSelector selector = QuoteSelector.getInstance(context);
+        int corpusSize = repository.size();
+        int corpusVersion = repository.getCorpusVersion();
+        long tomorrow = WidgetUpdateScheduler.today() + 1;
+        for (int appWidgetId : appWidgetIds) {
+            WidgetConfig config = WidgetConfigResolver.get(context, appWidgetId);
+            // Device colors and the auto theme follow both the night mode and the wallpaper. Both are
+            // read before the colors, so a change in between leaves the record stale rather than wrong.
+            boolean themed = config.autoTheme || config.deviceTextColor || config.deviceBackgroundColor;
+            int uiModeKey = themed ? DeviceColors.uiModeKey(context) : PreparedQuotes.Record.ANY_UI_MODE;
+            int wallpaperId = themed ? WallpaperPalette.getWallpaperId(context) : PreparedQuotes.Record.ANY_WALLPAPER;
+            WidgetStyle style = resolveStyle(context, config);
+            if (style.usesBitmap()) {
+                continue;
+            }
+            int sizeBucket = WidgetSizes.getBucket(appWidgetManager, appWidgetId);
+            long day = PreparedQuotes.Record.ANY_DAY;
+            int index;
+            if (config.isDaily()) {
+                day = tomorrow;
+                index = DailyQuote.index(day, config.dailySeed, corpusVersion, corpusSize);
+            } else {
+                index = selectNext(context, repository, selector, appWidgetId, config, style,
+                        getMatches(repository, config), sizeBucket, corpusSize, corpusVersion, false);
+            }
+            if (index < 0) {
+                continue;
+            }
 
-        appWidgetManager.updateAppWidget(appWidgetId, views);
+            Quote quote = getQuote(repository, index);
+            float textSize = QuoteTextSizer.getTextSize(context, style, quote, index + "@" + corpusVersion,
+                    sizeBucket);
+            prepared.put(appWidgetId, new PreparedQuotes.Record(index, corpusVersion, sizeBucket, day, uiModeKey,
+                    wallpaperId, quote.text, quote.author, textSize, style.textColor, style.fontSize,
+                    config.borderRadius, style.backgroundColor, style.backgroundAlpha, config.fontFamily,
+                    config.fontWeight), generation);
+        }
     }
 
-    private static int getDeviceTextColor(Context context) {
+    /** Groups widgets by resolved settings (widget overrides merged over the defaults). */
+    private static Map<WidgetConfig, List<Integer>> groupByConfig(Context context, int[] appWidgetIds) {
+        long start = RenderMetrics.begin(RenderMetrics.STAGE_RESOLVE_CONFIG);
         try {
-            // For Android 12+ (API 31+), use Material You dynamic colors
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-                // Try to get Material You text color
-                TypedValue typedValue = new TypedValue();
-                if (context.getTheme().resolveAttribute(android.R.attr.textColorPrimary, typedValue, true)) {
-                    if (typedValue.resourceId != 0) {
-                        return context.getResources().getColor(typedValue.resourceId, context.getTheme());
-                    } else {
-                        return typedValue.data;
-                    }
+            Map<WidgetConfig, List<Integer>> groups = new LinkedHashMap<>();
+            for (int appWidgetId : appWidgetIds) {
+                WidgetConfig config = WidgetConfigResolver.get(context, appWidgetId);
+                List<Integer> group = groups.get(config);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    groups.put(config, group);
                 }
+                group.add(appWidgetId);
             }
-
-            // Fallback to system text color
-            TypedValue typedValue = new TypedValue();
-            if (context.getTheme().resolveAttribute(android.R.attr.textColorPrimary, typedValue, true)) {
-                return typedValue.data;
-            }
-        } catch (Exception e) {
-            android.util.Log.e("QuoteWidget", "Error getting device text color: " + e.getMessage());
+            return groups;
+        } finally {
+            RenderMetrics.end(RenderMetrics.STAGE_RESOLVE_CONFIG, start);
         }
-
-        // Final fallback based on dark mode
-        int nightMode = context.getResources().getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
-        return (nightMode == Configuration.UI_MODE_NIGHT_YES) ? Color.WHITE : Color.BLACK;
     }
 
-    private static int getDeviceBackgroundColor(Context context) {
-        try {
-            // For Android 12+ (API 31+), use Material You dynamic colors
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-                // Try to get Material You background color
-                TypedValue typedValue = new TypedValue();
-                if (context.getTheme().resolveAttribute(android.R.attr.colorBackground, typedValue, true)) {
-                    if (typedValue.resourceId != 0) {
-                        return context.getResources().getColor(typedValue.resourceId, context.getTheme());
+    private static void renderGroups(Context context, AppWidgetManager appWidgetManager,
+            Map<WidgetConfig, List<Integer>> groups, boolean advance) {
+        QuoteRepository repository = QuoteRepository.getInstance(context);
+        QuoteSelector selector = QuoteSelector.getInstance(context);
+        PendingIntent openApp = getOpenAppIntent(context);
+
+        for (Map.Entry<WidgetConfig, List<Integer>> group : groups.entrySet()) {
+            WidgetConfig config = group.getKey();
+            WidgetStyle style = resolveStyle(context, config);
+
+            // Pick each widget's next quote from its own shuffled order, among quotes
+            // whose length suits its size. Text is fitted to the widget's size, so
+            // widgets also need a matching size to share views.
+            int corpusSize = repository.size();
+            int corpusVersion = repository.getCorpusVersion();
+            long today = WidgetUpdateScheduler.today();
+            Map<Long, List<Integer>> byQuote = new LinkedHashMap<>();
+            long selectStart = RenderMetrics.begin(RenderMetrics.STAGE_SELECT_QUOTE);
+            try {
+                QuoteBitSet matches = getMatches(repository, config);
+                for (int appWidgetId : group.getValue()) {
+                    int sizeBucket = WidgetSizes.getBucket(appWidgetManager, appWidgetId);
+                    int index;
+                    if (config.isDaily()) {
+                        // Same for every widget with this seed, and for the app; filters and
+                        // size don't apply, and nothing is read or stored
+                        index = DailyQuote.index(today, config.dailySeed, corpusVersion, corpusSize);
                     } else {
-                        return typedValue.data;
+                        index = advance ? -1 : selector.getShown(appWidgetId);
+                        // A changed filter may no longer let the shown quote through
+                        if (index < 0 || index >= corpusSize || (matches != null && !matches.get(index))) {
+                            index = selectNext(context, repository, selector, appWidgetId, config, style,
+                                    matches, sizeBucket, corpusSize, corpusVersion, true);
+                        }
                     }
+                    long key = (long) sizeBucket << 32 | (index & 0xFFFFFFFFL);
+                    List<Integer> ids = byQuote.get(key);
+                    if (ids == null) {
+                        ids = new ArrayList<>();
+                        byQuote.put(key, ids);
+                    }
+                    ids.add(appWidgetId);
                 }
+            } finally {
+                RenderMetrics.end(RenderMetrics.STAGE_SELECT_QUOTE, selectStart);
             }
 
-            // Fallback to window background
-            TypedValue typedValue = new TypedValue();
-            if (context.getTheme().resolveAttribute(android.R.attr.windowBackground, typedValue, true)) {
-                if (typedValue.type >= TypedValue.TYPE_FIRST_COLOR_INT
-                        && typedValue.type <= TypedValue.TYPE_LAST_COLOR_INT) {
-                    return typedValue.data;
+            for (Map.Entry<Long, List<Integer>> entry : byQuote.entrySet()) {
+                int index = (int) (long) entry.getKey();
+                int sizeBucket = (int) (entry.getKey() >>> 32);
+                List<Integer> fullIds = new ArrayList<>();
+                List<Integer> quoteOnlyIds = new ArrayList<>();
+                for (int appWidgetId : entry.getValue()) {
+                    PushedState last = recordPush(appWidgetId,
+                            new PushedState(style, index, corpusVersion, sizeBucket));
+                    if (last == null || !last.style.equals(style)) {
+                        fullIds.add(appWidgetId);
+                    } else if (last.quoteIndex != index || last.corpusVersion != corpusVersion
+                            || last.sizeBucket != sizeBucket) {
+                        quoteOnlyIds.add(appWidgetId);
+                    }
+                    // Otherwise the widget already shows exactly this; skip the push
+                }
+                RenderMetrics.count(RenderMetrics.SKIPPED_PUSHES,
+                        entry.getValue().size() - fullIds.size() - quoteOnlyIds.size());
+                if (fullIds.isEmpty() && quoteOnlyIds.isEmpty()) {
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                Quote quote = getQuote(repository, index);
+                String quoteKey = index + "@" + corpusVersion;
+                if (!fullIds.isEmpty()) {
+                    RenderMetrics.count(RenderMetrics.FULL_PUSHES, fullIds.size());
+                    long buildStart = RenderMetrics.begin(RenderMetrics.STAGE_BUILD_VIEWS);
+                    RemoteViews views;
+                    try {
+                        views = buildViews(context, style, quote, quoteKey, sizeBucket, openApp);
+                    } finally {
+                        RenderMetrics.end(RenderMetrics.STAGE_BUILD_VIEWS, buildStart);
+                    }
+                    push(appWidgetManager, toArray(fullIds), views, false);
+                }
+                if (!quoteOnlyIds.isEmpty()) {
+                    // Host keeps the rest of the last full views; only swap the text
+                    RenderMetrics.count(RenderMetrics.PARTIAL_PUSHES, quoteOnlyIds.size());
+                    long buildStart = RenderMetrics.begin(RenderMetrics.STAGE_BUILD_VIEWS);
+                    RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.quote_widget_layout);
+                    try {
+                        setQuoteText(context, views, style, quote, quoteKey, sizeBucket);
+                    } finally {
+                        RenderMetrics.end(RenderMetrics.STAGE_BUILD_VIEWS, buildStart);
+                    }
+                    push(appWidgetManager, toArray(quoteOnlyIds), views, true);
+                }
+                if (WidgetEvents.hasListener()) {
+                    double millis = (System.nanoTime() - start) / 1e6;
+                    WidgetEvents.rendered(toArray(fullIds), index, quote, millis);
+                    WidgetEvents.rendered(toArray(quoteOnlyIds), index, quote, millis);
                 }
             }
-        } catch (Exception e) {
-            android.util.Log.e("QuoteWidget", "Error getting device background color: " + e.getMessage());
         }
+    }
 
-        // Final fallback based on dark mode
-        int nightMode = context.getResources().getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
-        return (nightMode == Configuration.UI_MODE_NIGHT_YES) ? Color.parseColor("#1F1F1F") : Color.WHITE;
+    /** Quotes the widget's filter lets through, or null for all of them. */
+    private static QuoteBitSet getMatches(QuoteRepository repository, WidgetConfig config) {
+        QuoteBitSet matches = repository.getMatches(config.quoteFilter);
+        if (matches != null && matches.cardinality() == 0) {
+            WidgetLog.w("Quote filter matches nothing, picking from all quotes");
+            return null;
+        }
+        return matches;
     }
 
-    private static Quote getRandomQuote(Context context) {
-        try {
-            InputStream is = context.getAssets().open("quotes.json");
-            byte[] buffer = new byte[is.available()];
-            is.read(buffer);
-            is.close();
-            String json = new String(buffer, "UTF-8");
-
-            JSONArray quotes = new JSONArray(json);
-            Random random = new Random();
-            JSONObject quoteObj = quotes.getJSONObject(random.nextInt(quotes.length()));
-
-            return new Quote(quoteObj.getString("text"), quoteObj.getString("author"));
-        } catch (Exception e) {
-            // Return default quote if file reading fails
-            return new Quote("The only way to do great work is to love what you do.", "Steve Jobs");
+    /**
+     * Advances the widget to its next quote, picking among the quotes it may
+     * show only those whose length suits its size and font. Size is ignored
+     * when fewer than {@link #MIN_SIZED_QUOTES} of them do. With {@code show}
+     * off the pick is made ahead of time and not yet recorded as shown.
+     */
+    private static int selectNext(Context context, QuoteRepository repository, QuoteSelector selector,
+            int appWidgetId, WidgetConfig config, WidgetStyle style, QuoteBitSet matches, int sizeBucket,
+            int corpusSize, int corpusVersion, boolean show) {
+        QuoteLengthIndex lengths = repository.getLengthIndex();
+        if (lengths != null) {
+            int minLength = QuoteTextSizer.getMinLength(context, style, sizeBucket);
+            int maxLength = Math.max(minLength, QuoteTextSizer.getMaxLength(context, style, sizeBucket));
+            // The quotes that fit are one run of the length order
+            int fromRank = lengths.rankOf(minLength);
+            int toRank = lengths.rankOf(maxLength + 1);
+            if (matches == null) {
+                if (toRank - fromRank >= MIN_SIZED_QUOTES) {
+                    return selector.next(appWidgetId, lengths, fromRank, toRank, corpusVersion,
+                            config.uniqueQuotes, show);
+                }
+            } else {
+                QuoteBitSet sized = getSizedMatches(appWidgetId, matches, lengths, fromRank, toRank);
+                if (sized.cardinality() >= MIN_SIZED_QUOTES) {
+                    return selector.next(appWidgetId, sized, corpusVersion, config.uniqueQuotes, show);
+                }
+            }
         }
+        if (matches != null) {
+            return selector.next(appWidgetId, matches, corpusVersion, config.uniqueQuotes, show);
+        }
+        return selector.next(appWidgetId, corpusSize, corpusVersion, config.uniqueQuotes, show);
     }
 
-    private static void applyBackground(Context context, RemoteViews views, int backgroundColor,
-            String backgroundType, int borderRadius, float backgroundOpacity) {
+    private static QuoteBitSet getSizedMatches(int appWidgetId, QuoteBitSet matches, QuoteLengthIndex lengths,
+            int fromRank, int toRank) {
+        synchronized (sizedMatches) {
+            SizedMatches cached = sizedMatches.get(appWidgetId);
+            if (cached == null || !cached.isFor(matches, lengths, fromRank, toRank)) {
+                cached = new SizedMatches(matches, lengths, fromRank, toRank);
+                sizedMatches.put(appWidgetId, cached);
+            }
+            return cached.sized;
+        }
+    }
 
+    /** Sends views to the host: the binder call to the launcher, timed as its own stage. */
+    private static void push(AppWidgetManager appWidgetManager, int[] appWidgetIds, RemoteViews views,
+            boolean partial) {
+        long start = RenderMetrics.begin(RenderMetrics.STAGE_UPDATE_APP_WIDGET);
         try {
-            // Calculate alpha 0-255
-            int alpha = Math.round(backgroundOpacity * 255);
-
-            // Get opaque version of background color for filtering
-            int opaqueColor = Color.rgb(Color.red(backgroundColor), Color.green(backgroundColor),
-                    Color.blue(backgroundColor));
+            if (partial) {
+                appWidgetManager.partiallyUpdateAppWidget(appWidgetIds, views);
+            } else {
+                appWidgetManager.updateAppWidget(appWidgetIds, views);
+            }
+        } finally {
+            RenderMetrics.end(RenderMetrics.STAGE_UPDATE_APP_WIDGET, start);
+        }
+    }
 
-            // If opacity is effective 0, strict transparent
-            if (backgroundOpacity <= 0.05f) {
-                alpha = 0;
+    /**
+     * Forgets what was last pushed to these widgets so their next render is a
+     * full update. Needed whenever the host may have lost its copy of the views.
+     */
+    private static void forgetPushedState(int[] appWidgetIds) {
+        synchronized (pushed) {
+            for (int appWidgetId : appWidgetIds) {
+                pushed.remove(appWidgetId);
             }
+        }
+    }
 
-            // Get background drawable resource based on radius
-            int backgroundRes = getBackgroundDrawableForRadius(borderRadius);
+    private static PushedState recordPush(int appWidgetId, PushedState state) {
+        synchronized (pushed) {
+            PushedState last = pushed.get(appWidgetId);
+            pushed.put(appWidgetId, state);
+            return last;
+        }
+    }
 
-            if (alpha == 0) {
-                // If transparent, hide the image view or set strict transparent
-                views.setInt(R.id.widget_background_image, "setColorFilter", Color.TRANSPARENT);
-                views.setImageViewResource(R.id.widget_background_image, 0); // Remove drawable
-                views.setInt(R.id.widget_background_image, "setImageAlpha", 0);
+    private static void setQuoteText(Context context, RemoteViews views, WidgetStyle style, Quote quote,
+            String quoteKey, int sizeBucket) {
+        float textSize = QuoteTextSizer.getTextSize(context, style, quote, quoteKey, sizeBucket);
+        if (style.usesBitmap()) {
+            views.setImageViewBitmap(R.id.quote_bitmap,
+                    QuoteBitmapRenderer.render(context, style, quote, quoteKey, sizeBucket, textSize));
+            if (QuoteBitmapRenderer.isMask(quote)) {
+                // Mask bitmaps take their color from the view
+                views.setInt(R.id.quote_bitmap, "setColorFilter", style.textColor | 0xFF000000);
+                views.setInt(R.id.quote_bitmap, "setImageAlpha", Color.alpha(style.textColor));
             } else {
-                // Apply drawable, color filter (opaque), and then alpha to the view/drawable
-                views.setImageViewResource(R.id.widget_background_image, backgroundRes);
-                views.setInt(R.id.widget_background_image, "setColorFilter", opaqueColor);
-                views.setInt(R.id.widget_background_image, "setImageAlpha", alpha);
+                views.setInt(R.id.quote_bitmap, "setColorFilter", Color.TRANSPARENT);
+                views.setInt(R.id.quote_bitmap, "setImageAlpha", 255);
             }
-
-            android.util.Log.d("QuoteWidget",
-                    "Applied background - res: " + backgroundRes + ", color: " + String.format("#%08X", opaqueColor)
-                            + ", alpha: " + alpha);
-
-        } catch (Exception e) {
-            android.util.Log.e("QuoteWidget", "Error applying background: " + e.getMessage());
+            return;
         }
+        setQuoteText(views, style, quote, textSize);
     }
 
-    private static int getBackgroundDrawableForRadius(int radius) {
-        if (radius == 0) {
-            return R.drawable.widget_background; // Square
-        } else if (radius <= 8) {
-            return R.drawable.widget_background_8dp;
-        } else if (radius <= 16) {
-            return R.drawable.widget_background_16dp;
-        } else if (radius <= 24) {
-            return R.drawable.widget_background_24dp;
-        } else if (radius <= 32) {
-            return R.drawable.widget_background_32dp;
-        } else if (radius <= 40) {
-            return R.drawable.widget_background_40dp;
-        } else if (radius <= 48) {
-            return R.drawable.widget_background_48dp;
-        } else {
-            return R.drawable.widget_background_56dp; // 4XL (56dp)
-        }
+    /** Sets the quote on the TextViews at an already fitted {@code textSize}. */
+    private static void setQuoteText(RemoteViews views, WidgetStyle style, Quote quote, float textSize) {
+        // Quote text carries the font weight; the author keeps the italic style from the XML
+        views.setTextViewText(R.id.quote_text, style.styleText(quote.text));
+        views.setTextViewText(R.id.quote_author, "— " + quote.author);
+        views.setTextViewTextSize(R.id.quote_text, TypedValue.COMPLEX_UNIT_SP, textSize);
+        views.setTextViewTextSize(R.id.quote_author, TypedValue.COMPLEX_UNIT_SP,
+                textSize * QuoteTextSizer.AUTHOR_SCALE);
     }
 
-    private static int adjustColorOpacity(int color, float opacity) {
-        int alpha = Math.round(Color.alpha(color) * opacity);
-        return Color.argb(alpha, Color.red(color), Color.green(color), Color.blue(color));
+    private static RemoteViews buildViews(Context context, WidgetStyle style, Quote quote, String quoteKey,
+            int sizeBucket, PendingIntent openApp) {
+        RemoteViews views = buildFrame(context, style, openApp);
+        setQuoteText(context, views, style, quote, quoteKey, sizeBucket);
+        return views;
     }
 
-    private static void scheduleNextUpdate(Context context, int appWidgetId) {
-        SharedPreferences prefs = context.getSharedPreferences("widget_prefs", Context.MODE_PRIVATE);
-        boolean hasWidgetSettings = prefs.contains("refresh_interval_" + appWidgetId);
-        String suffix = hasWidgetSettings ? "_" + appWidgetId : "_0";
-        int intervalMinutes = prefs.getInt("refresh_interval" + suffix, 60);
+    /** Full views for {@code style} with everything but the quote itself. */
+    private static RemoteViews buildFrame(Context context, WidgetStyle style, PendingIntent openApp) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.quote_widget_layout);
 
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        Intent intent = new Intent(context, QuoteWidgetProvider.class);
-        intent.setAction(ACTION_UPDATE_WIDGET);
-        intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, appWidgetId);
+        // Bundled fonts can't be set on a TextView through RemoteViews, so those are drawn
+        boolean bitmap = style.usesBitmap();
+        views.setViewVisibility(R.id.quote_text, bitmap ? View.GONE : View.VISIBLE);
+        views.setViewVisibility(R.id.quote_author, bitmap ? View.GONE : View.VISIBLE);
+        views.setViewVisibility(R.id.quote_bitmap, bitmap ? View.VISIBLE : View.GONE);
 
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, appWidgetId, intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        // Apply text styling; sizes are fitted per quote in setQuoteText
+        views.setTextColor(R.id.quote_text, style.textColor);
+        views.setTextColor(R.id.quote_author, style.authorColor);
 
-        long triggerTime = SystemClock.elapsedRealtime() + (intervalMinutes * 60 * 1000);
+        // System fonts stay on the TextViews, where weight is approximated with spans
 
-        // Check if we can schedule exact alarms
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            if (alarmManager.canScheduleExactAlarms()) {
-                alarmManager.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME, triggerTime, pendingIntent);
-            } else {
-                // Fallback to inexact alarms if exact alarms are not allowed
-                alarmManager.setAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME, triggerTime, pendingIntent);
+        applyBackground(views, style);
+
+        views.setOnClickPendingIntent(R.id.widget_container, openApp);
+        return views;
+    }
+
+    private static WidgetStyle resolveStyle(Context context, WidgetConfig config) {
+        int textColor = config.deviceTextColor ? DeviceColors.getTextColor(context) : config.textColor;
+        int backgroundColor = config.deviceBackgroundColor
+                ? DeviceColors.getBackgroundColor(context)
+                : config.backgroundColor;
+        if (config.autoTheme) {
+            // Auto theme takes both colors from the wallpaper when it can be read
+            int[] palette = WallpaperPalette.get(context);
+            if (palette != null) {
+                textColor = palette[0];
+                backgroundColor = palette[1];
             }
-        } else {
-            // For older Android versions
-            alarmManager.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME, triggerTime, pendingIntent);
         }
+        return new WidgetStyle(textColor, config.fontSize, getBackgroundDrawableForRadius(config.borderRadius),
+                backgroundColor, config.backgroundOpacity, config.fontFamily, config.fontWeight,
+                WidgetFonts.get(context, config.fontFamily, config.fontWeight));
     }
 
-    private static void cancelScheduledUpdate(Context context, int appWidgetId) {
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        Intent intent = new Intent(context, QuoteWidgetProvider.class);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, appWidgetId, intent,
-                PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE);
-
-        if (pendingIntent != null) {
-            alarmManager.cancel(pendingIntent);
-            pendingIntent.cancel();
-        }
+    private static PendingIntent getOpenAppIntent(Context context) {
+        // Every widget opens the same screen, so they all share one PendingIntent
+        Intent appIntent = new Intent(context, MainActivity.class);
+        appIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        return PendingIntent.getActivity(context, 0, appIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
     }
 
-    private static void deleteWidgetPrefs(Context context, int appWidgetId) {
-        SharedPreferences prefs = context.getSharedPreferences("widget_prefs", Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-
-        editor.remove("font_family_" + appWidgetId);
-        editor.remove("font_size_" + appWidgetId);
-        editor.remove("text_color_" + appWidgetId);
-        editor.remove("text_color_type_" + appWidgetId);
-        editor.remove("font_weight_" + appWidgetId);
-        editor.remove("background_color_" + appWidgetId);
-        editor.remove("background_color_type_" + appWidgetId);
-        editor.remove("background_type_" + appWidgetId);
-        editor.remove("background_opacity_" + appWidgetId);
-        editor.remove("border_radius_" + appWidgetId);
-        editor.remove("refresh_interval_" + appWidgetId);
-        editor.remove("auto_theme_" + appWidgetId);
-
-        editor.apply();
-    }
-
-    private static CharSequence applyFontWeight(String text, String fontWeight) {
-        SpannableString spannable = new SpannableString(text);
-
-        // Default to sans-serif
-        String family = "sans-serif";
-        int style = Typeface.NORMAL;
-
-        switch (fontWeight) {
-            case "100": // Thin
-            case "200": // User requested Thin as 200
-            case "thin":
-                family = "sans-serif-thin";
-                break;
-            case "300": // Light
-            case "light":
-                family = "sans-serif-light";
-                break;
-            case "400": // Normal / User requested Medium as 400
-            case "normal":
-            case "regular":
-                // Default is sans-serif normal
-                break;
-            case "500": // Medium
-            case "medium":
-                family = "sans-serif-medium";
-                break;
-            case "700": // Bold
-            case "bold":
-                style = Typeface.BOLD;
-                break;
-            case "900": // Black/ExtraBold
-            case "800":
-            case "extrabold":
-                family = "sans-serif-black";
-                break;
-            default:
-                break;
+    private static int[] toArray(List<Integer> ids) {
+        int[] result = new int[ids.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.get(i);
         }
+        return result;
+    }
 
-        if (style == Typeface.BOLD) {
-            spannable.setSpan(new StyleSpan(Typeface.BOLD), 0, text.length(), Spanned.SPAN_INCLUSIVE_INCLUSIVE);
+    private static Quote getQuote(QuoteRepository repository, int index) {
+        Quote quote = index >= 0 ? repository.get(index) : null;
+        if (quote == null) {
+            // Return default quote if the store can't be read
+            return new Quote("The only way to do great work is to love what you do.", "Steve Jobs");
         }
+        return quote;
+    }
 
-        if (!family.equals("sans-serif")) {
-            spannable.setSpan(new TypefaceSpan(family), 0, text.length(), Spanned.SPAN_INCLUSIVE_INCLUSIVE);
+    private static void applyBackground(RemoteViews views, WidgetStyle style) {
+        if (style.backgroundAlpha == 0) {
+            // If transparent, remove the drawable entirely
+            views.setInt(R.id.widget_background_image, "setColorFilter", Color.TRANSPARENT);
+            views.setImageViewResource(R.id.widget_background_image, 0);
+            views.setInt(R.id.widget_background_image, "setImageAlpha", 0);
+        } else {
+            // Apply drawable, color filter (opaque), and then alpha to the view/drawable
+            views.setImageViewResource(R.id.widget_background_image, style.backgroundRes);
+            views.setInt(R.id.widget_background_image, "setColorFilter", style.backgroundColor);
+            views.setInt(R.id.widget_background_image, "setImageAlpha", style.backgroundAlpha);
         }
+    }
 
-        return spannable;
+    private static int getBackgroundDrawableForRadius(int radius) {
+        return BACKGROUND_DRAWABLES[BackgroundShapes.radiusIndex(radius)];
     }
 
-    static class Quote {
-        String text;
-        String author;
+    private static void cancelScheduledUpdates(Context context, int[] appWidgetIds) {
+        WidgetUpdateScheduler.getInstance(context).remove(appWidgetIds);
+    }
 
-        Quote(String text, String author) {
-            this.text = text;
-            this.author = author;
-        }
+    private static void deleteWidgetPrefs(Context context, int appWidgetId) {
+        WidgetSettingsStore.getInstance(context).delete(appWidgetId);
     }
 }
\ No newline at end of file
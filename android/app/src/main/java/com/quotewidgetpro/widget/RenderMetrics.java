@@ -0,0 +1,113 @@
+package com.quotewidgetpro.widget;
+
+import android.os.Trace;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory counters and latency histograms for the render pipeline, cheap
+ * enough to stay on in release builds. Each stage is also wrapped in an
+ * {@link Trace} section named after it, so the same boundaries show up in
+ * Perfetto and systrace captures.
+ */
+public final class RenderMetrics {
+    public static final int STAGE_RESOLVE_CONFIG = 0;
+    public static final int STAGE_SELECT_QUOTE = 1;
+    public static final int STAGE_BUILD_VIEWS = 2;
+    public static final int STAGE_UPDATE_APP_WIDGET = 3;
+    public static final int STAGE_RENDER = 4;
+    public static final String[] STAGE_NAMES = {
+            "resolveConfig",
+            "selectQuote",
+            "buildViews",
+            "updateAppWidget",
+            "render",
+    };
+    // Constant section names, so tracing allocates nothing
+    private static final String[] SECTION_NAMES = {
+            "QuoteWidget:resolveConfig",
+            "QuoteWidget:selectQuote",
+            "QuoteWidget:buildViews",
+            "QuoteWidget:updateAppWidget",
+            "QuoteWidget:render",
+    };
+
+    public static final int RENDER_PASSES = 0;
+    public static final int WIDGETS_RENDERED = 1;
+    public static final int FULL_PUSHES = 2;
+    public static final int PARTIAL_PUSHES = 3;
+    public static final int SKIPPED_PUSHES = 4;
+    public static final int CONFIG_CACHE_HITS = 5;
+    public static final int CONFIG_CACHE_MISSES = 6;
+    public static final int TEXT_SIZE_CACHE_HITS = 7;
+    public static final int TEXT_SIZE_CACHE_MISSES = 8;
+    public static final int BITMAP_CACHE_HITS = 9;
+    public static final int BITMAP_CACHE_MISSES = 10;
+    public static final int PREPARED_PUSHES = 11;
+    public static final String[] COUNTER_NAMES = {
+            "renderPasses",
+            "widgetsRendered",
+            "fullPushes",
+            "partialPushes",
+            "skippedPushes",
+            "configCacheHits",
+            "configCacheMisses",
+            "textSizeCacheHits",
+            "textSizeCacheMisses",
+            "bitmapCacheHits",
+            "bitmapCacheMisses",
+            "preparedPushes",
+    };
+
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[STAGE_NAMES.length];
+    private static final AtomicLongArray counters = new AtomicLongArray(COUNTER_NAMES.length);
+
+    static {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    private RenderMetrics() {
+    }
+
+    /** Opens the stage's trace section and returns the start time for {@link #end}. */
+    static long begin(int stage) {
+        Trace.beginSection(SECTION_NAMES[stage]);
+        return System.nanoTime();
+    }
+
+    /** Closes the section opened by {@link #begin} and records its duration. */
+    static void end(int stage, long start) {
+        histograms[stage].record(System.nanoTime() - start);
+        Trace.endSection();
+    }
+
+    static void count(int counter) {
+        counters.incrementAndGet(counter);
+    }
+
+    static void count(int counter, int delta) {
+        counters.addAndGet(counter, delta);
+    }
+
+    public static LatencyHistogram getHistogram(int stage) {
+        return histograms[stage];
+    }
+
+    public static long getCounter(int counter) {
+        // The LRU caches keep their own hit counts
+        switch (counter) {
+            case TEXT_SIZE_CACHE_HITS:
+                return QuoteTextSizer.getMemoHits();
+            case TEXT_SIZE_CACHE_MISSES:
+                return QuoteTextSizer.getMemoMisses();
+            case BITMAP_CACHE_HITS:
+                return QuoteBitmapRenderer.getCacheHits();
+            case BITMAP_CACHE_MISSES:
+                return QuoteBitmapRenderer.getCacheMisses();
+            default:
+                return counters.get(counter);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.quotewidgetpro.widget;
+
+import android.app.WallpaperManager;
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Notices theme changes that recolor the themed widgets. Since API 26
+ * neither CONFIGURATION_CHANGED nor WALLPAPER_CHANGED is delivered to a
+ * manifest receiver, so night-mode flips arrive through component callbacks
+ * and wallpaper changes through a colors listener (API 27+), both registered
+ * for the life of the process. Changes made while no process was around to
+ * hear them, and wallpaper changes below API 27, are caught by
+ * {@link #checkChanged} on the next batched pass.
+ */
+final class ThemeWatcher implements ComponentCallbacks {
+    private static final String PREFS_NAME = "theme_state";
+
+    private static ThemeWatcher instance;
+
+    private final Context context;
+
+    private ThemeWatcher(Context context) {
+        this.context = context;
+    }
+
+    /** Starts listening for theme changes in this process, if not already. */
+    static synchronized void register(Context context) {
+        if (instance != null) {
+            return;
+        }
+        Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        instance = new ThemeWatcher(appContext);
+        appContext.registerComponentCallbacks(instance);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            WallpaperManager.getInstance(appContext).addOnColorsChangedListener((colors, which) -> {
+                if ((which & WallpaperManager.FLAG_SYSTEM) != 0) {
+                    // Recorded so the next batched pass doesn't redraw again; a live wallpaper
+                    // can change its colors without a new id, so redraw either way
+                    checkChanged(appContext);
+                    DeviceColors.invalidate();
+                    QuoteWidgetProvider.refreshThemedWidgets(appContext, null);
+                }
+            }, new Handler(Looper.getMainLooper()));
+        }
+    }
+
+    /**
+     * Returns whether the night mode or the home screen wallpaper differs
+     * from the one seen by the last check, dropping the cached device colors
+     * if so. The very first check only records them, as every widget is
+     * rendered in full after an install.
+     */
+    static synchronized boolean checkChanged(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int uiModeKey = DeviceColors.uiModeKey(context);
+        int wallpaperId = WallpaperPalette.getWallpaperId(context);
+        int lastUiMode = prefs.getInt("ui_mode", -1);
+        if (lastUiMode == uiModeKey && prefs.getInt("wallpaper_id", -1) == wallpaperId) {
+            return false;
+        }
+        prefs.edit()
+                .putInt("ui_mode", uiModeKey)
+                .putInt("wallpaper_id", wallpaperId)
+                .apply();
+        DeviceColors.invalidate();
+        return lastUiMode != -1;
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // Most configuration changes (rotation, locale, ...) don't touch the theme
+        if (checkChanged(context)) {
+            QuoteWidgetProvider.refreshThemedWidgets(context, null);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        // Nothing cached here
+    }
+}
@@ -0,0 +1,152 @@
+package com.quotewidgetpro.widget;
+
+import android.app.WallpaperColors;
+import android.app.WallpaperManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+
+import com.quotewidgetpro.palette.ColorQuantizer;
+import com.quotewidgetpro.palette.ContrastPicker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Derives the text/background pair for auto-theme widgets from the current
+ * wallpaper. The wallpaper is scaled down to at most {@link #SAMPLE_SIZE}
+ * pixels a side, quantized with {@link ColorQuantizer} and turned into a
+ * readable pair by {@link ContrastPicker}, all within {@link #BUDGET_MILLIS}.
+ *
+ * The result is cached in memory and in SharedPreferences keyed by wallpaper
+ * id, so it is computed once per wallpaper, not once per render or process.
+ * Must be called off the main thread; widget renders already are.
+ */
+final class WallpaperPalette {
+    private static final String PREFS_NAME = "wallpaper_palette";
+    private static final int SAMPLE_SIZE = 64;
+    private static final int MAX_COLORS = 8;
+    private static final long BUDGET_MILLIS = 150;
+
+    private static final class Cached {
+        final int wallpaperId;
+        final int[] colors;
+
+        Cached(int wallpaperId, int[] colors) {
+            this.wallpaperId = wallpaperId;
+            this.colors = colors;
+        }
+    }
+
+    private static Cached cached;
+
+    private WallpaperPalette() {
+    }
+
+    /**
+     * Returns {@code {textColor, backgroundColor}} for the current wallpaper,
+     * or null if it can't be read, in which case callers fall back to the
+     * device colors.
+     */
+    static synchronized int[] get(Context context) {
+        WallpaperManager wallpaperManager = WallpaperManager.getInstance(context);
+        int wallpaperId = getWallpaperId(context);
+        if (cached != null && cached.wallpaperId == wallpaperId) {
+            return cached.colors;
+        }
+
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int[] colors = null;
+        if (prefs.getInt("wallpaper_id", -1) == wallpaperId && prefs.contains("text_color")) {
+            colors = new int[] { prefs.getInt("text_color", Color.BLACK),
+                    prefs.getInt("background_color", Color.WHITE) };
+        } else {
+            long start = System.nanoTime();
+            colors = extract(wallpaperManager, start + BUDGET_MILLIS * 1_000_000L);
+            WidgetLog.d("Wallpaper palette extracted, ms: ", (System.nanoTime() - start) / 1_000_000L);
+            if (colors != null) {
+                prefs.edit()
+                        .putInt("wallpaper_id", wallpaperId)
+                        .putInt("text_color", colors[0])
+                        .putInt("background_color", colors[1])
+                        .apply();
+            }
+        }
+        if (colors != null) {
+            cached = new Cached(wallpaperId, colors);
+        }
+        return colors;
+    }
+
+    /** Id of the current home screen wallpaper; changes whenever it is replaced. */
+    static int getWallpaperId(Context context) {
+        return WallpaperManager.getInstance(context).getWallpaperId(WallpaperManager.FLAG_SYSTEM);
+    }
+
+    private static int[] extract(WallpaperManager wallpaperManager, long deadlineNanos) {
+        int[] pixels = samplePixels(wallpaperManager);
+        if (pixels != null) {
+            return ContrastPicker.pick(ColorQuantizer.quantize(pixels, MAX_COLORS, deadlineNanos));
+        }
+        // Without access to the image, the system's own wallpaper colors are the next best thing
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            WallpaperColors wallpaperColors = wallpaperManager.getWallpaperColors(WallpaperManager.FLAG_SYSTEM);
+            if (wallpaperColors != null) {
+                List<ColorQuantizer.Swatch> swatches = new ArrayList<>();
+                addSwatch(swatches, wallpaperColors.getPrimaryColor(), 3);
+                addSwatch(swatches, wallpaperColors.getSecondaryColor(), 2);
+                addSwatch(swatches, wallpaperColors.getTertiaryColor(), 1);
+                return ContrastPicker.pick(swatches);
+            }
+        }
+        return null;
+    }
+
+    private static void addSwatch(List<ColorQuantizer.Swatch> swatches, Color color, int weight) {
+        if (color != null) {
+            swatches.add(new ColorQuantizer.Swatch(color.toArgb(), weight));
+        }
+    }
+
+    private static int[] samplePixels(WallpaperManager wallpaperManager) {
+        Drawable drawable;
+        try {
+            drawable = wallpaperManager.getDrawable();
+        } catch (SecurityException e) {
+            // Reading the wallpaper image needs storage access on newer releases
+            return null;
+        }
+        if (drawable == null) {
+            return null;
+        }
+
+        int width = Math.max(1, drawable.getIntrinsicWidth());
+        int height = Math.max(1, drawable.getIntrinsicHeight());
+        float scale = Math.min(1f, (float) SAMPLE_SIZE / Math.max(width, height));
+        int sampleWidth = Math.max(1, Math.round(width * scale));
+        int sampleHeight = Math.max(1, Math.round(height * scale));
+
+        Bitmap source = drawable instanceof BitmapDrawable ? ((BitmapDrawable) drawable).getBitmap() : null;
+        Bitmap sample;
+        if (source != null) {
+            sample = Bitmap.createScaledBitmap(source, sampleWidth, sampleHeight, true);
+        } else {
+            sample = Bitmap.createBitmap(sampleWidth, sampleHeight, Bitmap.Config.ARGB_8888);
+            drawable.setBounds(0, 0, sampleWidth, sampleHeight);
+            drawable.draw(new Canvas(sample));
+        }
+
+        int[] pixels = new int[sampleWidth * sampleHeight];
+        sample.getPixels(pixels, 0, sampleWidth, 0, 0, sampleWidth, sampleHeight);
+        if (sample != source) {
+            // The source belongs to the wallpaper manager's cache; only drop our copy
+            sample.recycle();
+        }
+        return pixels;
+    }
+}
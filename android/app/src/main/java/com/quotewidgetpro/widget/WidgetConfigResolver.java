@@ -0,0 +1,42 @@
+package com.quotewidgetpro.widget;
+
+import android.content.Context;
+import android.util.SparseArray;
+
+/**
+ * Per-widget cache of resolved {@link WidgetConfig}s. A config is built from
+ * the settings store the first time a widget is rendered and reused until
+ * something writes that widget's settings. Writing the defaults (widget 0)
+ * invalidates every entry, since any widget may inherit from them.
+ */
+public final class WidgetConfigResolver {
+    private static final SparseArray<WidgetConfig> cache = new SparseArray<>();
+
+    private WidgetConfigResolver() {
+    }
+
+    public static WidgetConfig get(Context context, int widgetId) {
+        synchronized (cache) {
+            WidgetConfig config = cache.get(widgetId);
+            if (config == null) {
+                RenderMetrics.count(RenderMetrics.CONFIG_CACHE_MISSES);
+                WidgetSettingsStore store = WidgetSettingsStore.getInstance(context);
+                config = WidgetConfig.resolve(store.get(0), store.get(widgetId));
+                cache.put(widgetId, config);
+            } else {
+                RenderMetrics.count(RenderMetrics.CONFIG_CACHE_HITS);
+            }
+            return config;
+        }
+    }
+
+    public static void invalidate(int widgetId) {
+        synchronized (cache) {
+            if (widgetId == 0) {
+                cache.clear();
+            } else {
+                cache.remove(widgetId);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.quotewidgetpro.widget;
+
+import com.quotewidgetpro.Quote;
+
+/**
+ * Lets the React Native module hear about widgets being added, deleted and
+ * rendered, so the app can follow them without polling. At most one listener
+ * is registered, and only while a React instance is alive; with none, the
+ * widget side skips building events entirely.
+ */
+public final class WidgetEvents {
+    public interface Listener {
+        void onWidgetAdded(int appWidgetId);
+
+        void onWidgetsDeleted(int[] appWidgetIds);
+
+        /** Called on the render thread after a widget was pushed. */
+        void onWidgetRendered(int appWidgetId, int quoteIndex, Quote quote, double durationMillis);
+    }
+
+    private static volatile Listener listener;
+
+    private WidgetEvents() {
+    }
+
+    public static void setListener(Listener newListener) {
+        listener = newListener;
+    }
+
+    /** Clears the listener only if it is still {@code oldListener}. */
+    public static void removeListener(Listener oldListener) {
+        if (listener == oldListener) {
+            listener = null;
+        }
+    }
+
+    static boolean hasListener() {
+        return listener != null;
+    }
+
+    static void added(int appWidgetId) {
+        Listener current = listener;
+        if (current != null) {
+            current.onWidgetAdded(appWidgetId);
+        }
+    }
+
+    static void deleted(int[] appWidgetIds) {
+        Listener current = listener;
+        if (current != null) {
+            current.onWidgetsDeleted(appWidgetIds);
+        }
+    }
+
+    static void rendered(int[] appWidgetIds, int quoteIndex, Quote quote, double durationMillis) {
+        Listener current = listener;
+        if (current != null) {
+            for (int appWidgetId : appWidgetIds) {
+                current.onWidgetRendered(appWidgetId, quoteIndex, quote, durationMillis);
+            }
+        }
+    }
+}
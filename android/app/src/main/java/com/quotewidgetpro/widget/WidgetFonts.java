@@ -0,0 +1,97 @@
+package com.quotewidgetpro.widget;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.os.Build;
+
+import androidx.core.content.res.ResourcesCompat;
+
+import com.quotewidgetpro.R;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps a stored font_family to one of the fonts bundled in res/font. A name
+ * matches its family or its font file, ignoring case, spaces and dashes:
+ * "Playfair Display", "playfair-display" and "playfair_display_semibold" all
+ * pick the same font, but a partial name such as "play" picks none. Families
+ * that aren't bundled (sans-serif, serif, ...) return null and keep rendering
+ * through plain TextViews.
+ */
+final class WidgetFonts {
+    private static final String[] FAMILIES = {
+            "bodoni_moda",
+            "christmas",
+            "kranky",
+            "mirza",
+            "orbitron",
+            "playfair_display",
+            "prompt",
+            "sevillana",
+    };
+    private static final String[] NAMES = {
+            "bodoni_moda_semibold",
+            "christmas_semibold",
+            "kranky_regular",
+            "mirza_semibold",
+            "orbitron_semibold",
+            "playfair_display_semibold",
+            "prompt_semibold",
+            "sevillana_regular",
+    };
+    private static final int[] RES_IDS = {
+            R.font.bodoni_moda_semibold,
+            R.font.christmas_semibold,
+            R.font.kranky_regular,
+            R.font.mirza_semibold,
+            R.font.orbitron_semibold,
+            R.font.playfair_display_semibold,
+            R.font.prompt_semibold,
+            R.font.sevillana_regular,
+    };
+
+    // Keyed by family + "/" + weight; loading a font file is not cheap
+    private static final Map<String, Typeface> typefaces = new HashMap<>();
+
+    private WidgetFonts() {
+    }
+
+    /** Returns the bundled typeface at the given CSS weight, or null if the family isn't bundled. */
+    static synchronized Typeface get(Context context, String fontFamily, String fontWeight) {
+        int index = indexOf(fontFamily);
+        if (index < 0) {
+            return null;
+        }
+        String key = NAMES[index] + "/" + fontWeight;
+        Typeface typeface = typefaces.get(key);
+        if (typeface == null) {
+            Typeface base = ResourcesCompat.getFont(context, RES_IDS[index]);
+            if (base == null) {
+                return null;
+            }
+            int weight = FontWeights.numeric(fontWeight);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                typeface = Typeface.create(base, weight, false);
+            } else {
+                typeface = Typeface.create(base, weight >= 600 ? Typeface.BOLD : Typeface.NORMAL);
+            }
+            typefaces.put(key, typeface);
+        }
+        return typeface;
+    }
+
+    private static int indexOf(String fontFamily) {
+        if (fontFamily == null || fontFamily.isEmpty()) {
+            return -1;
+        }
+        String normalized = fontFamily.trim().toLowerCase(Locale.ROOT).replace(' ', '_').replace('-', '_');
+        for (int i = 0; i < NAMES.length; i++) {
+            if (FAMILIES[i].equals(normalized) || NAMES[i].equals(normalized)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
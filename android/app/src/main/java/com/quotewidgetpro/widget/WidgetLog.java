@@ -0,0 +1,80 @@
+package com.quotewidgetpro.widget;
+
+import android.util.Log;
+
+import com.quotewidgetpro.BuildConfig;
+
+/**
+ * The app's logger, gated by level. Debug logging is on in debug builds and
+ * off in release builds unless enabled with
+ * {@code adb shell setprop log.tag.QuoteWidget DEBUG}.
+ *
+ * Callers pass numbers as separate primitive arguments instead of building
+ * the message themselves, so a disabled call allocates nothing; messages that
+ * need more than that are built behind {@link #isLoggable}.
+ */
+public final class WidgetLog {
+    public static final String TAG = "QuoteWidget";
+
+    private static volatile int level = BuildConfig.DEBUG || Log.isLoggable(TAG, Log.DEBUG) ? Log.DEBUG : Log.INFO;
+
+    private WidgetLog() {
+    }
+
+    /** Sets the lowest level that is logged, one of the {@link Log} priorities. */
+    public static void setLevel(int newLevel) {
+        level = newLevel;
+    }
+
+    public static boolean isLoggable(int priority) {
+        return priority >= level;
+    }
+
+    public static void d(String message) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(TAG, message);
+        }
+    }
+
+    public static void d(String message, long value) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(TAG, message + value);
+        }
+    }
+
+    public static void d(String message, long value, String message2, long value2) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(TAG, message + value + message2 + value2);
+        }
+    }
+
+    public static void i(String message) {
+        if (isLoggable(Log.INFO)) {
+            Log.i(TAG, message);
+        }
+    }
+
+    public static void i(String message, long value) {
+        if (isLoggable(Log.INFO)) {
+            Log.i(TAG, message + value);
+        }
+    }
+
+    public static void w(String message) {
+        if (isLoggable(Log.WARN)) {
+            Log.w(TAG, message);
+        }
+    }
+
+    public static void e(String message) {
+        if (isLoggable(Log.ERROR)) {
+            Log.e(TAG, message);
+        }
+    }
+
+    public static void e(String message, Throwable error) {
+        if (isLoggable(Log.ERROR)) {
+            Log.e(TAG, message, error);
+        }
+    }
+}
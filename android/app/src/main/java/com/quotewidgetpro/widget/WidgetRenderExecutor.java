@@ -0,0 +1,342 @@
+package com.quotewidgetpro.widget;
+
+import android.appwidget.AppWidgetManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs widget work that receivers hand off via {@code goAsync()}: store I/O,
+ * settings reads and RemoteViews construction all happen on one background
+ * thread instead of the broadcast's main thread.
+ *
+ * This is the one render queue for every source: update broadcasts, alarms,
+ * theme changes, resizes, the configure activity and the React Native module
+ * all request renders here rather than calling the provider directly.
+ * Requests are merged per widget id for {@link #MERGE_WINDOW_MILLIS} before
+ * a render runs, so a burst of triggers for the same widget renders it once
+ * per window. A widget asked both to advance to its next quote and to redraw
+ * its current one advances.
+ *
+ * Each broadcast's PendingResult is finished when the render covering its ids
+ * completes, or after {@link #TIMEOUT_MILLIS} at the latest so a slow render
+ * can never hold the broadcast into an ANR. Callers outside a receiver are
+ * told whether the render ran: work that throws, or a render that fails,
+ * reports failure rather than success.
+ *
+ * The queue is unbounded. Work is never dropped, as it may be the alarm work
+ * that arms the next alarm; renders are merged per widget, so a burst of
+ * triggers adds small work items but not a render each.
+ */
+public final class WidgetRenderExecutor {
+    // Background broadcasts are killed after 60s and foreground ones after 10s
+    private static final long TIMEOUT_MILLIS = 8000;
+    private static final long MERGE_WINDOW_MILLIS = 150;
+
+    /** Background part of a broadcast; returns the widgets to render afterwards. */
+    public interface Work {
+        int[] run();
+    }
+
+    /** Told on the render thread whether a requested render ran. */
+    public interface Callback {
+        void onDone(boolean rendered);
+    }
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), r -> new Thread(r, "QuoteWidgetRender"));
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private static final Object lock = new Object();
+    // Widget id -> whether it should advance to its next quote
+    private static final Map<Integer, Boolean> pendingIds = new LinkedHashMap<>();
+    private static final List<Completion> waiting = new ArrayList<>();
+    private static boolean renderQueued;
+    private static final List<Completion> debounceWaiting = new ArrayList<>();
+    private static Runnable debounced;
+
+    private static final AtomicLong broadcasts = new AtomicLong();
+    private static final AtomicLong mainThreadMillis = new AtomicLong();
+    private static final AtomicLong maxMainThreadMillis = new AtomicLong();
+    private static final AtomicLong timeouts = new AtomicLong();
+    private static final AtomicLong rendersRequested = new AtomicLong();
+    private static final AtomicLong rendersPerformed = new AtomicLong();
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private WidgetRenderExecutor() {
+    }
+
+    /** Queues a render of {@code appWidgetIds}, finishing {@code result} (if any) once it is done. */
+    public static void render(Context context, int[] appWidgetIds, BroadcastReceiver.PendingResult result) {
+        submit(context, result, () -> appWidgetIds);
+    }
+
+    /**
+     * Queues a redraw of {@code appWidgetIds} with the quotes they already
+     * show, for changes that only affect how they look.
+     */
+    public static void redraw(Context context, int[] appWidgetIds, BroadcastReceiver.PendingResult result) {
+        submit(context, result, false, () -> appWidgetIds);
+    }
+
+    /**
+     * Queues a render for callers outside a receiver, telling
+     * {@code onRendered} (if any) whether it ran once it is done.
+     */
+    public static void request(Context context, int[] appWidgetIds, boolean advance, Callback onRendered) {
+        List<Completion> completions = new ArrayList<>();
+        completions.add(new Completion(onRendered));
+        execute(appContext(context), completions, advance, () -> appWidgetIds);
+    }
+
+    /**
+     * Runs {@code work} on the render thread, then moves the widgets it
+     * returns on to their next quote. {@code result} may be null when the
+     * caller isn't a receiver.
+     */
+    public static void submit(Context context, BroadcastReceiver.PendingResult result, Work work) {
+        submit(context, result, true, work);
+    }
+
+    /**
+     * Runs {@code work} on the render thread, then renders whatever widgets it
+     * returns, advancing them to their next quote or redrawing the current one.
+     */
+    public static void submit(Context context, BroadcastReceiver.PendingResult result, boolean advance, Work work) {
+        List<Completion> completions = new ArrayList<>();
+        completions.add(new Completion(result));
+        execute(appContext(context), completions, advance, work);
+    }
+
+    /**
+     * Like {@link #submit}, but waits {@code delayMillis} for further calls
+     * first. A burst of calls runs only the last call's work, once, and
+     * finishes every caller's result when it is done.
+     */
+    public static void submitDebounced(Context context, BroadcastReceiver.PendingResult result, long delayMillis,
+            boolean advance, Work work) {
+        Context appContext = appContext(context);
+        synchronized (lock) {
+            debounceWaiting.add(new Completion(result));
+            if (debounced != null) {
+                mainHandler.removeCallbacks(debounced);
+            }
+            debounced = () -> {
+                List<Completion> completions;
+                synchronized (lock) {
+                    completions = new ArrayList<>(debounceWaiting);
+                    debounceWaiting.clear();
+                    debounced = null;
+                }
+                execute(appContext, completions, advance, work);
+            };
+            mainHandler.postDelayed(debounced, delayMillis);
+        }
+    }
+
+    /**
+     * Runs {@code task} on the render thread once the work queued so far is
+     * done, for follow-up work that shouldn't keep broadcasts waiting.
+     */
+    public static void runLater(Runnable task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                WidgetLog.e("Widget follow-up work failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /** Drops queued renders for widgets that no longer exist. */
+    public static void cancel(int[] appWidgetIds) {
+        synchronized (lock) {
+            for (int appWidgetId : appWidgetIds) {
+                pendingIds.remove(appWidgetId);
+            }
+        }
+    }
+
+    /** Records how long one broadcast kept the main thread busy. */
+    public static void recordMainThreadTime(long millis) {
+        broadcasts.incrementAndGet();
+        mainThreadMillis.addAndGet(millis);
+        long max;
+        do {
+            max = maxMainThreadMillis.get();
+        } while (millis > max && !maxMainThreadMillis.compareAndSet(max, millis));
+    }
+
+    public static long getBroadcastCount() {
+        return broadcasts.get();
+    }
+
+    public static long getMainThreadMillis() {
+        return mainThreadMillis.get();
+    }
+
+    public static long getMaxMainThreadMillis() {
+        return maxMainThreadMillis.get();
+    }
+
+    public static long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    /** Widget renders asked for, counting a widget once per request. */
+    public static long getRendersRequested() {
+        return rendersRequested.get();
+    }
+
+    /** Widget renders actually run after merging. */
+    public static long getRendersPerformed() {
+        return rendersPerformed.get();
+    }
+
+    private static Context appContext(Context context) {
+        return context.getApplicationContext() != null ? context.getApplicationContext() : context;
+    }
+
+    private static void execute(Context context, List<Completion> completions, boolean advance, Work work) {
+        executor.execute(() -> {
+            int[] appWidgetIds;
+            try {
+                appWidgetIds = work.run();
+            } catch (RuntimeException e) {
+                WidgetLog.e("Widget work failed: " + e.getMessage());
+                finishAll(completions, false);
+                return;
+            }
+            enqueueRender(context, appWidgetIds, advance, completions);
+        });
+    }
+
+    private static void enqueueRender(Context context, int[] appWidgetIds, boolean advance,
+            List<Completion> completions) {
+        rendersRequested.addAndGet(appWidgetIds.length);
+        synchronized (lock) {
+            for (int appWidgetId : appWidgetIds) {
+                Boolean pending = pendingIds.get(appWidgetId);
+                pendingIds.put(appWidgetId, advance || (pending != null && pending));
+            }
+            waiting.addAll(completions);
+            if (renderQueued) {
+                return;
+            }
+            renderQueued = true;
+        }
+        scheduleDrain(context);
+    }
+
+    /** Runs the merged render once the window has passed. */
+    private static void scheduleDrain(Context context) {
+        mainHandler.postDelayed(() -> executor.execute(() -> drain(context)), MERGE_WINDOW_MILLIS);
+    }
+
+    private static void drain(Context context) {
+        List<Integer> advanceIds = new ArrayList<>();
+        List<Integer> redrawIds = new ArrayList<>();
+        List<Completion> completions;
+        synchronized (lock) {
+            for (Map.Entry<Integer, Boolean> entry : pendingIds.entrySet()) {
+                if (entry.getValue()) {
+                    advanceIds.add(entry.getKey());
+                } else {
+                    redrawIds.add(entry.getKey());
+                }
+            }
+            pendingIds.clear();
+            completions = new ArrayList<>(waiting);
+            waiting.clear();
+            renderQueued = false;
+        }
+        boolean rendered = false;
+        try {
+            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+            if (!advanceIds.isEmpty()) {
+                QuoteWidgetProvider.updateAppWidgets(context, appWidgetManager, toArray(advanceIds));
+            }
+            if (!redrawIds.isEmpty()) {
+                QuoteWidgetProvider.redrawAppWidgets(context, appWidgetManager, toArray(redrawIds));
+            }
+            rendersPerformed.addAndGet(advanceIds.size() + redrawIds.size());
+            rendered = true;
+        } catch (RuntimeException e) {
+            WidgetLog.e("Error rendering widgets: " + e.getMessage());
+        } finally {
+            finishAll(completions, rendered);
+        }
+    }
+
+    private static int[] toArray(List<Integer> ids) {
+        int[] result = new int[ids.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.get(i);
+        }
+        return result;
+    }
+
+    private static void finishAll(List<Completion> completions, boolean rendered) {
+        for (Completion completion : completions) {
+            completion.finish(rendered);
+        }
+    }
+
+    /**
+     * Finishes a PendingResult, or runs a callback, exactly once: when work
+     * completes or, for broadcasts, on timeout.
+     */
+    private static final class Completion implements Runnable {
+        private final BroadcastReceiver.PendingResult result;
+        private final Callback callback;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        Completion(BroadcastReceiver.PendingResult result) {
+            this.result = result;
+            this.callback = null;
+            if (result != null) {
+                mainHandler.postDelayed(this, TIMEOUT_MILLIS);
+            }
+        }
+
+        Completion(Callback callback) {
+            this.result = null;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            if (finished.compareAndSet(false, true)) {
+                timeouts.incrementAndGet();
+                WidgetLog.w("Widget render timed out, releasing broadcast");
+                result.finish();
+            }
+        }
+
+        void finish(boolean rendered) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            if (result != null) {
+                mainHandler.removeCallbacks(this);
+                result.finish();
+            } else if (callback != null) {
+                callback.onDone(rendered);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,314 @@
+package com.quotewidgetpro.widget;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Color;
+import android.util.SparseArray;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persists one small {@link WidgetSettingsRecord} file per widget, with the
+ * defaults stored as widget 0. Records are cached in memory once read, so
+ * readers see a write immediately; the file itself is written on a background
+ * thread via temp file + rename, so a save costs O(record size) no matter how
+ * many widgets exist and never leaves a half-written record behind. Each
+ * write saves the widget's latest record rather than the one it was queued
+ * with, so racing saves can't leave an older record on disk.
+ *
+ * Replaces the loose font_family_N / text_color_N / ... keys in the
+ * widget_prefs SharedPreferences file, which are migrated on the first read,
+ * before any record is served.
+ */
+public final class WidgetSettingsStore {
+    private static final String LEGACY_PREFS_NAME = "widget_prefs";
+    private static final String DIR_NAME = "widget_settings";
+    private static final String EXTENSION = ".rec";
+
+    private static WidgetSettingsStore instance;
+
+    private final File dir;
+    private final PreparedQuotes prepared;
+    private final SharedPreferences legacyPrefs;
+    private final SparseArray<WidgetSettingsRecord> records = new SparseArray<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    // Guarded by records
+    private boolean migrationChecked;
+
+    private WidgetSettingsStore(Context context) {
+        dir = new File(context.getFilesDir(), DIR_NAME);
+        if (!dir.isDirectory()) {
+            dir.mkdirs();
+        }
+        prepared = PreparedQuotes.getInstance(context);
+        legacyPrefs = context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized WidgetSettingsStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new WidgetSettingsStore(context.getApplicationContext() != null
+                    ? context.getApplicationContext()
+                    : context);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the widget's stored record, empty if it has none. Callers must
+     * not modify it.
+     */
+    public WidgetSettingsRecord get(int widgetId) {
+        synchronized (records) {
+            if (!migrationChecked) {
+                migrationChecked = true;
+                migrateLegacyPrefs();
+            }
+            WidgetSettingsRecord record = records.get(widgetId);
+            if (record == null) {
+                record = read(widgetId);
+                records.put(widgetId, record);
+            }
+            return record;
+        }
+    }
+
+    /**
+     * Merges {@code patch} into the widget's record. The new values are visible
+     * to readers right away; the returned future completes once the record is
+     * on disk.
+     */
+    public CompletableFuture<Void> update(int widgetId, WidgetSettingsRecord patch) {
+        synchronized (records) {
+            records.put(widgetId, get(widgetId).merge(patch));
+        }
+        WidgetConfigResolver.invalidate(widgetId);
+        prepared.invalidate(widgetId);
+        return CompletableFuture.runAsync(() -> writeLatest(widgetId), writer);
+    }
+
+    /**
+     * Applies {@code patch} to several widgets at once. All new records become
+     * visible together and are written in a single background task.
+     *
+     * When the defaults (widget 0) are among the targets, the other targets
+     * don't get their own copy of the patch; they drop any override of the
+     * patched fields and inherit the new defaults. A widget without such an
+     * override is left untouched, so a typical save rewrites one record no
+     * matter how many widgets exist.
+     */
+    public CompletableFuture<Void> updateAll(int[] widgetIds, WidgetSettingsRecord patch) {
+        boolean includesDefaults = false;
+        for (int widgetId : widgetIds) {
+            if (widgetId == 0) {
+                includesDefaults = true;
+                break;
+            }
+        }
+
+        final SparseArray<WidgetSettingsRecord> changed = new SparseArray<>();
+        synchronized (records) {
+            for (int widgetId : widgetIds) {
+                WidgetSettingsRecord record = get(widgetId);
+                if (widgetId == 0 || !includesDefaults) {
+                    changed.put(widgetId, record.merge(patch));
+                } else if ((record.fields() & patch.fields()) != 0) {
+                    changed.put(widgetId, record.without(patch.fields()));
+                }
+            }
+            for (int i = 0; i < changed.size(); i++) {
+                records.put(changed.keyAt(i), changed.valueAt(i));
+            }
+        }
+        for (int i = 0; i < changed.size(); i++) {
+            WidgetConfigResolver.invalidate(changed.keyAt(i));
+            prepared.invalidate(changed.keyAt(i));
+        }
+        return CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < changed.size(); i++) {
+                writeLatest(changed.keyAt(i));
+            }
+        }, writer);
+    }
+
+    public CompletableFuture<Void> delete(int widgetId) {
+        synchronized (records) {
+            // Migrates first, so a deleted widget's old settings can't come back
+            get(widgetId);
+            records.put(widgetId, new WidgetSettingsRecord());
+        }
+        WidgetConfigResolver.invalidate(widgetId);
+        prepared.invalidate(widgetId);
+        return CompletableFuture.runAsync(() -> writeLatest(widgetId), writer);
+    }
+
+    private File fileFor(int widgetId) {
+        return new File(dir, widgetId + EXTENSION);
+    }
+
+    private WidgetSettingsRecord read(int widgetId) {
+        File file = fileFor(widgetId);
+        if (!file.isFile()) {
+            return new WidgetSettingsRecord();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return WidgetSettingsRecord.readFrom(in);
+        } catch (IOException e) {
+            WidgetLog.e("Error reading settings for widget " + widgetId + ": " + e.getMessage());
+            return new WidgetSettingsRecord();
+        }
+    }
+
+    /**
+     * Saves the widget's current record, deleting its file if the record is
+     * empty. Runs on {@link #writer}, so whichever write runs last saves the
+     * newest record.
+     */
+    private void writeLatest(int widgetId) {
+        WidgetSettingsRecord record;
+        synchronized (records) {
+            record = records.get(widgetId);
+        }
+        if (record == null) {
+            return;
+        }
+        if (record.isEmpty()) {
+            fileFor(widgetId).delete();
+        } else {
+            write(widgetId, record);
+        }
+    }
+
+    private void write(int widgetId, WidgetSettingsRecord record) {
+        File target = fileFor(widgetId);
+        File temp = new File(dir, widgetId + EXTENSION + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+            record.writeTo(out);
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            temp.delete();
+            throw new RuntimeException("Failed to write settings for widget " + widgetId, e);
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new RuntimeException("Failed to replace settings for widget " + widgetId);
+        }
+    }
+
+    /**
+     * One-time import of the old per-key SharedPreferences layout, run under
+     * the records lock by the first read so nothing is served before it.
+     * Records are written before the old keys are cleared, so an interrupted
+     * migration just runs again on the next start.
+     */
+    private void migrateLegacyPrefs() {
+        Map<String, ?> all = legacyPrefs.getAll();
+        if (all.isEmpty()) {
+            return;
+        }
+
+        SparseArray<WidgetSettingsRecord> migrated = new SparseArray<>();
+        for (Map.Entry<String, ?> entry : all.entrySet()) {
+            String key = entry.getKey();
+            int split = key.lastIndexOf('_');
+            if (split <= 0) {
+                continue;
+            }
+            int widgetId;
+            try {
+                widgetId = Integer.parseInt(key.substring(split + 1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            WidgetSettingsRecord record = migrated.get(widgetId);
+            if (record == null) {
+                record = new WidgetSettingsRecord();
+                migrated.put(widgetId, record);
+            }
+            try {
+                migrateKey(legacyPrefs, key.substring(0, split), "_" + widgetId, entry.getValue(), record);
+            } catch (ClassCastException e) {
+                WidgetLog.w("Skipping malformed setting " + key);
+            }
+        }
+
+        // Served from memory even if writing fails and the migration runs again next start
+        for (int i = 0; i < migrated.size(); i++) {
+            records.put(migrated.keyAt(i), migrated.valueAt(i));
+        }
+        try {
+            for (int i = 0; i < migrated.size(); i++) {
+                WidgetSettingsRecord record = migrated.valueAt(i);
+                if (!record.isEmpty()) {
+                    write(migrated.keyAt(i), record);
+                }
+            }
+        } catch (RuntimeException e) {
+            WidgetLog.e("Settings migration failed, will retry: " + e.getMessage());
+            return;
+        }
+        legacyPrefs.edit().clear().commit();
+        WidgetLog.i("Migrated settings, widgets: ", migrated.size());
+    }
+
+    private static void migrateKey(SharedPreferences prefs, String name, String suffix, Object value,
+            WidgetSettingsRecord record) {
+        switch (name) {
+            case "font_family":
+                record.setFontFamily((String) value);
+                break;
+            case "font_size":
+                record.setFontSize((Integer) value);
+                break;
+            case "font_weight":
+                record.setFontWeight((String) value);
+                break;
+            case "text_color":
+            case "text_color_type":
+                record.setTextColor(
+                        WidgetConfig.COLOR_TYPE_DEVICE.equals(prefs.getString("text_color_type" + suffix, "custom")),
+                        prefs.getInt("text_color" + suffix, Color.BLACK));
+                break;
+            case "background_color":
+            case "background_color_type":
+                record.setBackgroundColor(
+                        WidgetConfig.COLOR_TYPE_DEVICE.equals(
+                                prefs.getString("background_color_type" + suffix, "custom")),
+                        prefs.getInt("background_color" + suffix, Color.WHITE));
+                break;
+            case "background_type":
+                record.setBackgroundType((String) value);
+                break;
+            case "background_opacity":
+                record.setBackgroundOpacity((Float) value);
+                break;
+            case "border_radius":
+                record.setBorderRadius((Integer) value);
+                break;
+            case "refresh_interval":
+                record.setRefreshInterval((Integer) value);
+                break;
+            case "auto_theme":
+                record.setAutoTheme((Boolean) value);
+                break;
+            case "unique_quotes":
+                record.setUniqueQuotes((Boolean) value);
+                break;
+            default:
+                // Unused legacy keys such as is_bold_N are dropped
+                break;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.quotewidgetpro.widget;
+
+import android.appwidget.AppWidgetManager;
+import android.os.Bundle;
+import android.util.SparseArray;
+
+/**
+ * Actual size of each widget as last reported by the host through
+ * onAppWidgetOptionsChanged, so renders don't ask AppWidgetManager for the
+ * options of every widget. Sizes are folded into buckets of
+ * {@link #BUCKET_DP} so slightly different sizes share fitted text sizes and
+ * bitmaps.
+ */
+final class WidgetSizes {
+    static final int BUCKET_DP = 16;
+
+    // Size from quote_widget_info, for hosts that don't report one
+    private static final int DEFAULT_WIDTH_DP = 250;
+    private static final int DEFAULT_HEIGHT_DP = 110;
+    // FrameLayout (4dp) and container (16dp) padding, on both sides
+    private static final int CONTENT_INSET_DP = 2 * (4 + 16);
+
+    // {minWidth, maxWidth, minHeight, maxHeight} in dp
+    private static final SparseArray<int[]> sizes = new SparseArray<>();
+
+    private WidgetSizes() {
+    }
+
+    static void update(int appWidgetId, Bundle options) {
+        int[] size = {
+                options.getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH),
+                options.getInt(AppWidgetManager.OPTION_APPWIDGET_MAX_WIDTH),
+                options.getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_HEIGHT),
+                options.getInt(AppWidgetManager.OPTION_APPWIDGET_MAX_HEIGHT),
+        };
+        synchronized (sizes) {
+            sizes.put(appWidgetId, size);
+        }
+    }
+
+    static void remove(int[] appWidgetIds) {
+        synchronized (sizes) {
+            for (int appWidgetId : appWidgetIds) {
+                sizes.remove(appWidgetId);
+            }
+        }
+    }
+
+    /** Returns the widget's size bucket, reading its options once if nothing was recorded yet. */
+    static int getBucket(AppWidgetManager appWidgetManager, int appWidgetId) {
+        int[] size;
+        synchronized (sizes) {
+            size = sizes.get(appWidgetId);
+        }
+        if (size == null) {
+            Bundle options = appWidgetManager.getAppWidgetOptions(appWidgetId);
+            if (options != null) {
+                update(appWidgetId, options);
+                synchronized (sizes) {
+                    size = sizes.get(appWidgetId);
+                }
+            }
+        }
+        // Portrait size: full width is the min width, full height the max height
+        int widthDp = size != null && size[0] > 0 ? size[0] : DEFAULT_WIDTH_DP;
+        int heightDp = size != null && size[3] > 0 ? size[3] : DEFAULT_HEIGHT_DP;
+        return bucket(widthDp, heightDp);
+    }
+
+    /** Packs a widget size into a bucket key shared by all nearby sizes. */
+    static int bucket(int widthDp, int heightDp) {
+        int width = Math.max(1, (widthDp + BUCKET_DP / 2) / BUCKET_DP);
+        int height = Math.max(1, (heightDp + BUCKET_DP / 2) / BUCKET_DP);
+        return width << 16 | height;
+    }
+
+    /** Width available to the text in a widget of the given bucket. */
+    static int contentWidthDp(int bucket) {
+        return Math.max(BUCKET_DP, (bucket >>> 16) * BUCKET_DP - CONTENT_INSET_DP);
+    }
+
+    /** Height available to the quote and author in a widget of the given bucket. */
+    static int contentHeightDp(int bucket) {
+        return Math.max(BUCKET_DP, (bucket & 0xFFFF) * BUCKET_DP - CONTENT_INSET_DP);
+    }
+}
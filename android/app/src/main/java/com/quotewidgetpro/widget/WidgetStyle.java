@@ -0,0 +1,145 @@
+package com.quotewidgetpro.widget;
+
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+
+/**
+ * Everything about a widget's appearance that doesn't depend on the quote it
+ * shows, resolved once from a {@link WidgetConfig}: final colors, background
+ * drawable and alpha, the spans that implement the font weight, and the
+ * bundled typeface when the font needs bitmap rendering. Widgets
+ * that share a config share one style, and two styles compare equal when they
+ * would produce the same views.
+ */
+final class WidgetStyle {
+    final int textColor;
+    final int authorColor;
+    final int fontSize;
+    final int backgroundRes;
+    final int backgroundColor;
+    final int backgroundAlpha;
+    // Non-null when text is drawn by QuoteBitmapRenderer instead of TextViews
+    final Typeface typeface;
+    private final String fontFamily;
+    private final String fontWeight;
+    private final Object[] textSpans;
+
+    WidgetStyle(int textColor, int fontSize, int backgroundRes, int backgroundColor, float backgroundOpacity,
+            String fontFamily, String fontWeight, Typeface typeface) {
+        // If opacity is effectively 0, go fully transparent
+        this(textColor, fontSize, backgroundRes, backgroundColor,
+                backgroundOpacity <= 0.05f ? 0 : Math.round(backgroundOpacity * 255), fontFamily, fontWeight,
+                typeface);
+    }
+
+    private WidgetStyle(int textColor, int fontSize, int backgroundRes, int backgroundColor, int backgroundAlpha,
+            String fontFamily, String fontWeight, Typeface typeface) {
+        this.textColor = textColor;
+        this.authorColor = adjustColorOpacity(textColor, 0.7f);
+        this.fontSize = fontSize;
+        this.backgroundRes = backgroundRes;
+        // The drawable is tinted with the opaque color and faded via image alpha
+        this.backgroundColor = Color.rgb(Color.red(backgroundColor), Color.green(backgroundColor),
+                Color.blue(backgroundColor));
+        this.backgroundAlpha = backgroundAlpha;
+        this.fontFamily = fontFamily;
+        this.fontWeight = fontWeight;
+        this.typeface = typeface;
+        this.textSpans = getFontWeightSpans(fontWeight);
+    }
+
+    /**
+     * Rebuilds a TextView style from the values a {@link PreparedQuotes}
+     * record kept, without resolving colors or fonts again.
+     */
+    static WidgetStyle restore(int textColor, int fontSize, int backgroundRes, int backgroundColor,
+            int backgroundAlpha, String fontFamily, String fontWeight) {
+        return new WidgetStyle(textColor, fontSize, backgroundRes, backgroundColor, backgroundAlpha, fontFamily,
+                fontWeight, null);
+    }
+
+    boolean usesBitmap() {
+        return typeface != null;
+    }
+
+    /**
+     * Identifies everything that goes into a rendered text bitmap. Mask
+     * bitmaps are tinted at display time, so their key leaves out the colors.
+     */
+    String textKey(boolean mask) {
+        return mask ? fontKey() : fontKey() + "/" + Integer.toHexString(textColor);
+    }
+
+    /** Identifies everything that affects how large text measures. */
+    String fontKey() {
+        return fontFamily + "/" + fontWeight + "/" + fontSize;
+    }
+
+    CharSequence styleText(String text) {
+        if (textSpans.length == 0) {
+            return text;
+        }
+        SpannableString spannable = new SpannableString(text);
+        for (Object span : textSpans) {
+            spannable.setSpan(span, 0, text.length(), Spanned.SPAN_INCLUSIVE_INCLUSIVE);
+        }
+        return spannable;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof WidgetStyle)) {
+            return false;
+        }
+        WidgetStyle other = (WidgetStyle) o;
+        return textColor == other.textColor
+                && fontSize == other.fontSize
+                && backgroundRes == other.backgroundRes
+                && backgroundColor == other.backgroundColor
+                && backgroundAlpha == other.backgroundAlpha
+                && fontFamily.equals(other.fontFamily)
+                && fontWeight.equals(other.fontWeight);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = textColor;
+        result = 31 * result + fontSize;
+        result = 31 * result + backgroundRes;
+        result = 31 * result + backgroundColor;
+        result = 31 * result + backgroundAlpha;
+        result = 31 * result + fontFamily.hashCode();
+        result = 31 * result + fontWeight.hashCode();
+        return result;
+    }
+
+    private static int adjustColorOpacity(int color, float opacity) {
+        int alpha = Math.round(Color.alpha(color) * opacity);
+        return Color.argb(alpha, Color.red(color), Color.green(color), Color.blue(color));
+    }
+
+    private static Object[] getFontWeightSpans(String fontWeight) {
+        switch (FontWeights.variant(fontWeight)) {
+            case FontWeights.THIN:
+                return new Object[] { new TypefaceSpan("sans-serif-thin") };
+            case FontWeights.LIGHT:
+                return new Object[] { new TypefaceSpan("sans-serif-light") };
+            case FontWeights.MEDIUM:
+                return new Object[] { new TypefaceSpan("sans-serif-medium") };
+            case FontWeights.BOLD:
+                return new Object[] { new StyleSpan(Typeface.BOLD) };
+            case FontWeights.BLACK:
+                return new Object[] { new TypefaceSpan("sans-serif-black") };
+            default:
+                // Default is sans-serif normal
+                return new Object[0];
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.quotewidgetpro.widget;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.SparseArray;
+
+import com.quotewidgetpro.DailyQuote;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Schedules widget refreshes with a single alarm. Widgets are grouped into
+ * buckets by refresh interval, and each bucket fires on wall-clock boundaries
+ * of its interval (every 30 minutes on :00 and :30, every hour on the hour,
+ * ...), so all widgets sharing an interval refresh together. Only the next due
+ * bucket has an alarm pending; when it fires, every due widget is refreshed in
+ * one batch and the alarm is re-armed for the next boundary.
+ *
+ * Widgets in daily mode share one more bucket that fires at local midnight,
+ * worked out on the calendar so days that are 23 or 25 hours long still turn
+ * over at midnight. It is due whenever the local date differs from the one
+ * it last ran on, which also catches the date moving when the clock or time
+ * zone is changed (see {@link #onClockChanged}).
+ *
+ * The bucket table is rebuilt from the installed widgets when the process
+ * starts. Only the last boundary each bucket ran at (for the daily bucket,
+ * the last date) is persisted, so an alarm delivered to a fresh process still
+ * knows which buckets are due.
+ */
+public final class WidgetUpdateScheduler {
+    public static final String ACTION_REFRESH_DUE = "com.quotewidgetpro.ACTION_REFRESH_DUE";
+
+    private static final String PREFS_NAME = "widget_schedule";
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    // Alarms may arrive slightly early; a boundary this close counts as reached
+    private static final long SLACK_MILLIS = 5 * 1000L;
+    // Bucket key of daily widgets; intervals are at least a minute
+    private static final int DAILY_BUCKET = 0;
+
+    private static WidgetUpdateScheduler instance;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    // Refresh interval in minutes (or DAILY_BUCKET) -> widgets using it
+    private final SparseArray<List<Integer>> buckets = new SparseArray<>();
+
+    private WidgetUpdateScheduler(Context context) {
+        this.context = context;
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        rebuild();
+    }
+
+    public static synchronized WidgetUpdateScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new WidgetUpdateScheduler(context.getApplicationContext() != null
+                    ? context.getApplicationContext()
+                    : context);
+        }
+        return instance;
+    }
+
+    /**
+     * Puts the widgets into the bucket for their current refresh interval,
+     * moving them out of any previous one, and re-arms the alarm.
+     */
+    public synchronized void schedule(int[] appWidgetIds) {
+        long now = System.currentTimeMillis();
+        for (int appWidgetId : appWidgetIds) {
+            removeFromBuckets(appWidgetId);
+            addToBucket(appWidgetId, now);
+        }
+        arm(now);
+    }
+
+    /**
+     * Drops the widgets from the bucket table, forgetting buckets that end up
+     * empty, and re-arms or cancels the alarm accordingly.
+     */
+    public synchronized void remove(int[] appWidgetIds) {
+        for (int appWidgetId : appWidgetIds) {
+            removeFromBuckets(appWidgetId);
+        }
+        arm(System.currentTimeMillis());
+    }
+
+    /**
+     * Re-reads every widget's refresh interval. Call after settings that may
+     * change intervals, such as the defaults, are written.
+     */
+    public synchronized void reschedule() {
+        rebuild();
+    }
+
+    /**
+     * Returns the widgets due after the wall clock jumped or the time zone
+     * changed, and re-arms the alarm for the new local time. A bucket whose
+     * last boundary is now in the future is reset to the current one, so it
+     * fires again at its next boundary.
+     */
+    public synchronized int[] onClockChanged() {
+        return collectDue();
+    }
+
+    /**
+     * Returns the widgets whose bucket has crossed a boundary since it last
+     * ran, marks those buckets as run and re-arms the alarm.
+     */
+    public synchronized int[] collectDue() {
+        long now = System.currentTimeMillis();
+        SharedPreferences.Editor editor = prefs.edit();
+        List<Integer> due = new ArrayList<>();
+        for (int i = 0; i < buckets.size(); i++) {
+            int interval = buckets.keyAt(i);
+            String key = "last_" + interval;
+            if (interval == DAILY_BUCKET) {
+                // Stored as the local epoch day it last ran on; any other day is due, so a
+                // clock moved back also gets that day's quote
+                long day = today(now);
+                if (day != prefs.getLong(key, Long.MIN_VALUE)) {
+                    due.addAll(buckets.valueAt(i));
+                    editor.putLong(key, day);
+                }
+                continue;
+            }
+            long boundary = floorBoundary(now + SLACK_MILLIS, interval);
+            long last = prefs.getLong(key, Long.MAX_VALUE);
+            if (boundary > last) {
+                due.addAll(buckets.valueAt(i));
+                editor.putLong(key, boundary);
+            } else if (boundary < last && last != Long.MAX_VALUE) {
+                // The clock was set back; start over from the current boundary rather than
+                // staying silent until the clock catches up with the last one
+                editor.putLong(key, boundary);
+            }
+        }
+        editor.apply();
+        arm(now);
+
+        int[] result = new int[due.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = due.get(i);
+        }
+        return result;
+    }
+
+    private void rebuild() {
+        buckets.clear();
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, QuoteWidgetProvider.class));
+        long now = System.currentTimeMillis();
+        for (int appWidgetId : appWidgetIds) {
+            addToBucket(appWidgetId, now);
+        }
+        forgetUnusedBuckets();
+        arm(now);
+    }
+
+    private void addToBucket(int appWidgetId, long now) {
+        WidgetConfig config = WidgetConfigResolver.get(context, appWidgetId);
+        int interval = config.isDaily() ? DAILY_BUCKET : Math.max(1, config.refreshInterval);
+        List<Integer> bucket = buckets.get(interval);
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            buckets.put(interval, bucket);
+            String key = "last_" + interval;
+            if (!prefs.contains(key)) {
+                // Widgets joining a new bucket were just rendered; start at the current boundary
+                prefs.edit().putLong(key, interval == DAILY_BUCKET ? today(now) : floorBoundary(now, interval))
+                        .apply();
+            }
+        }
+        bucket.add(appWidgetId);
+    }
+
+    private void removeFromBuckets(int appWidgetId) {
+        for (int i = buckets.size() - 1; i >= 0; i--) {
+            List<Integer> bucket = buckets.valueAt(i);
+            if (bucket.remove(Integer.valueOf(appWidgetId)) && bucket.isEmpty()) {
+                prefs.edit().remove("last_" + buckets.keyAt(i)).apply();
+                buckets.removeAt(i);
+            }
+        }
+    }
+
+    private void forgetUnusedBuckets() {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (String key : prefs.getAll().keySet()) {
+            try {
+                if (key.startsWith("last_") && buckets.get(Integer.parseInt(key.substring(5))) == null) {
+                    editor.remove(key);
+                }
+            } catch (NumberFormatException e) {
+                editor.remove(key);
+            }
+        }
+        editor.apply();
+    }
+
+    private void arm(long now) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent pendingIntent = getAlarmIntent();
+        if (buckets.size() == 0) {
+            alarmManager.cancel(pendingIntent);
+            return;
+        }
+
+        long triggerTime = Long.MAX_VALUE;
+        for (int i = 0; i < buckets.size(); i++) {
+            int interval = buckets.keyAt(i);
+            if (interval == DAILY_BUCKET) {
+                triggerTime = Math.min(triggerTime, nextLocalMidnight(now + SLACK_MILLIS));
+            } else {
+                triggerTime = Math.min(triggerTime,
+                        floorBoundary(now + SLACK_MILLIS, interval) + interval * MINUTE_MILLIS);
+            }
+        }
+
+        // Check if we can schedule exact alarms
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            // Fallback to inexact alarms if exact alarms are not allowed
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC, triggerTime, pendingIntent);
+        } else {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC, triggerTime, pendingIntent);
+        }
+    }
+
+    private PendingIntent getAlarmIntent() {
+        Intent intent = new Intent(context, QuoteWidgetProvider.class);
+        intent.setAction(ACTION_REFRESH_DUE);
+        return PendingIntent.getBroadcast(context, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /**
+     * The local epoch day daily widgets show, counting an alarm that arrives
+     * slightly before midnight as the new day.
+     */
+    static long today() {
+        return today(System.currentTimeMillis());
+    }
+
+    private static long today(long now) {
+        return DailyQuote.localEpochDay(now + SLACK_MILLIS, TimeZone.getDefault());
+    }
+
+    /**
+     * First local midnight after {@code time}. Calendar applies the zone's
+     * daylight saving rules, and where midnight is skipped it lands on the
+     * first instant of the day instead.
+     */
+    private static long nextLocalMidnight(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Start of the interval containing {@code time}, measured on the local
+     * wall clock so hourly buckets land on the hour in any time zone.
+     */
+    private static long floorBoundary(long time, int intervalMinutes) {
+        long intervalMillis = intervalMinutes * MINUTE_MILLIS;
+        long offset = TimeZone.getDefault().getOffset(time);
+        return Math.floorDiv(time + offset, intervalMillis) * intervalMillis - offset;
+    }
+}
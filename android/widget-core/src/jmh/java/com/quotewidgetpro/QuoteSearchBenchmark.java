@@ -0,0 +1,111 @@
+package com.quotewidgetpro;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building, loading and querying the search index. Quotes are drawn from a
+ * few thousand made-up words with a skewed frequency, so common words match
+ * a large share of the corpus and rare ones a handful of quotes, much like
+ * real text. The queries cover a common word, a word being typed, two words
+ * and a one-letter prefix, the worst case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuoteSearchBenchmark {
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ne", "ru", "sa", "te", "vi", "or", "an", "el", "us", "ing", "th", "pr",
+    };
+
+    @Param({ "1000", "500000" })
+    public int size;
+
+    @Param({ "love", "lov", "love cou", "l" })
+    public String query;
+
+    private File storeFile;
+    private File indexFile;
+    private QuoteStore store;
+    private QuoteSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void writeIndex() throws IOException {
+        storeFile = File.createTempFile("quotes-" + size, ".bin");
+        Random random = new Random(size);
+        String[] words = new String[4000];
+        words[0] = "love";
+        words[1] = "courage";
+        for (int i = 2; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 1 + random.nextInt(3); s > 0; s--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words[i] = word.toString();
+        }
+        try (QuoteStoreWriter writer = new QuoteStoreWriter(storeFile)) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < size; i++) {
+                text.setLength(0);
+                int length = 6 + random.nextInt(30);
+                for (int w = 0; w < length; w++) {
+                    if (w > 0) {
+                        text.append(' ');
+                    }
+                    // Roughly Zipfian: low-numbered words are far more common
+                    text.append(words[(int) (words.length * Math.pow(random.nextDouble(), 3))]);
+                }
+                writer.add(text.append('.').toString(), "Author " + random.nextInt(1 + size / 20));
+            }
+            writer.commit();
+        }
+        store = QuoteStore.openFile(storeFile);
+        indexFile = File.createTempFile("quotes-" + size, ".search");
+        SearchIndexWriter.of(store).write(indexFile, store.getCorpusVersion());
+        index = QuoteSearchIndex.openFile(indexFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() {
+        for (File file : new File[] { storeFile, indexFile }) {
+            if (file != null && !file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    /** Tokenizes every quote and writes the index, as after an import. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long build() throws IOException {
+        SearchIndexWriter.of(store).write(indexFile, store.getCorpusVersion());
+        return indexFile.length();
+    }
+
+    /** Maps the persisted index, as on a cold start. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public int load() throws IOException {
+        return QuoteSearchIndex.openFile(indexFile).getTermCount();
+    }
+
+    /** Finds, ranks and pages the first 20 matches. */
+    @Benchmark
+    public QuoteSearchIndex.Result search() {
+        return index.search(query, 0, 20);
+    }
+}
@@ -0,0 +1,159 @@
+package com.quotewidgetpro;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the quote store and picking quotes from it, at corpus sizes from
+ * the bundled collection up to a large import. The store is a synthetic one
+ * written through {@link QuoteStoreWriter}, with quote lengths and author
+ * reuse roughly like the real corpus and one of a handful of tags on each
+ * quote.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QuoteStoreBenchmark {
+    private static final String[] WORDS = {
+            "life", "is", "what", "happens", "when", "you", "are", "busy", "making", "other", "plans",
+            "the", "only", "way", "to", "do", "great", "work", "love", "courage", "wisdom", "begins",
+    };
+
+    private static final String[] TAGS = { "life", "work", "love", "wisdom", "courage", "dreams" };
+
+    @Param({ "1000", "100000", "1000000" })
+    public int size;
+
+    private File file;
+    private QuoteStore store;
+    private QuoteLengthIndex lengths;
+    private int fromRank;
+    private int toRank;
+    private QuoteIndex index;
+    private QuoteFilter filter;
+    private QuoteBitSet matches;
+    private QuoteSequence.Cursor cursor;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void writeStore() throws IOException {
+        file = File.createTempFile("quotes-" + size, ".bin");
+        Random words = new Random(size);
+        try (QuoteStoreWriter writer = new QuoteStoreWriter(file)) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < size; i++) {
+                text.setLength(0);
+                int length = 6 + words.nextInt(30);
+                for (int w = 0; w < length; w++) {
+                    if (w > 0) {
+                        text.append(' ');
+                    }
+                    text.append(WORDS[words.nextInt(WORDS.length)]);
+                }
+                List<String> tags = Collections.singletonList(TAGS[words.nextInt(TAGS.length)]);
+                writer.add(text.append('.').toString(), "Author " + words.nextInt(1 + size / 20), tags);
+            }
+            writer.commit();
+        }
+        store = QuoteStore.openFile(file);
+        lengths = QuoteLengthIndex.build(store);
+        // Quotes that suit a small widget, about a third of the corpus
+        fromRank = lengths.rankOf(40);
+        toRank = lengths.rankOf(121);
+        index = QuoteIndex.build(store, lengths);
+        // About a third of the corpus, minus one author
+        filter = new QuoteFilter(null, Collections.singletonList("Author 1"), Arrays.asList("life", "work"),
+                null, 0, 120);
+        matches = index.match(filter);
+        cursor = new QuoteSequence.Cursor();
+        random = new Random(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteStore() {
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Maps the file and reads one quote, as a widget process does on its first
+     * render. Timed one call at a time: a mapping is only released when it is
+     * garbage collected, so a tight loop would exhaust the address space.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Quote load() throws IOException {
+        return QuoteStore.openFile(file).get(0);
+    }
+
+    /** Reads one quote and its author at a random index. */
+    @Benchmark
+    public Quote get() {
+        return store.get(random.nextInt(size));
+    }
+
+    /** Advances a widget's permutation and reads the quote it lands on. */
+    @Benchmark
+    public Quote select() {
+        return store.get(QuoteSequence.next(cursor, size, store.getCorpusVersion(), null, 0, random));
+    }
+
+    /** Builds the author and tag index, once per corpus load. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public QuoteIndex buildIndex() {
+        return QuoteIndex.build(store);
+    }
+
+    /** Sorts the quotes by length, once per corpus load. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public QuoteLengthIndex buildLengthIndex() {
+        return QuoteLengthIndex.build(store);
+    }
+
+    /** Advances a widget's permutation over the quotes whose length suits its size. */
+    @Benchmark
+    public int selectSized() {
+        return QuoteSequence.next(cursor, lengths, fromRank, toRank, store.getCorpusVersion(), null, 0, random);
+    }
+
+    /** Evaluates a filter combining tags, an excluded author and a length bound. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public QuoteBitSet matchFilter() {
+        return index.match(filter);
+    }
+
+    /** Advances a widget's permutation over the quotes its filter matches. */
+    @Benchmark
+    public int selectFiltered() {
+        return QuoteSequence.next(cursor, matches, store.getCorpusVersion(), null, 0, random);
+    }
+
+    /** Advances a widget's permutation while a sibling widget shows every other quote. */
+    @Benchmark
+    public int selectAvoidingSiblings() {
+        return QuoteSequence.next(cursor, size, store.getCorpusVersion(), index -> (index & 1) == 0, 8, random);
+    }
+}
@@ -0,0 +1,61 @@
+package com.quotewidgetpro.palette;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Palette extraction as WallpaperPalette runs it: a downsampled wallpaper
+ * quantized to 8 swatches, then a readable pair picked from them. The
+ * synthetic wallpaper is a two-tone gradient with noise, so the histogram
+ * has the few thousand distinct colors a real photo gives at this size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ColorQuantizerBenchmark {
+    private static final int MAX_COLORS = 8;
+
+    // Side of the downsampled wallpaper; WallpaperPalette uses 64
+    @Param({ "32", "64", "128" })
+    public int side;
+
+    private int[] pixels;
+
+    @Setup(Level.Trial)
+    public void paintWallpaper() {
+        Random random = new Random(side);
+        pixels = new int[side * side];
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                int r = clamp(30 + 180 * x / side + random.nextInt(40) - 20);
+                int g = clamp(60 + 120 * y / side + random.nextInt(40) - 20);
+                int b = clamp(200 - 150 * (x + y) / (2 * side) + random.nextInt(40) - 20);
+                pixels[y * side + x] = 0xFF000000 | r << 16 | g << 8 | b;
+            }
+        }
+    }
+
+    private static int clamp(int channel) {
+        return Math.max(0, Math.min(255, channel));
+    }
+
+    @Benchmark
+    public int quantize() {
+        return ColorQuantizer.quantize(pixels, MAX_COLORS, Long.MAX_VALUE).size();
+    }
+
+    @Benchmark
+    public int[] quantizeAndPick() {
+        return ContrastPicker.pick(ColorQuantizer.quantize(pixels, MAX_COLORS, Long.MAX_VALUE));
+    }
+}
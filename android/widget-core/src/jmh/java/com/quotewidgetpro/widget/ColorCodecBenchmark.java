@@ -0,0 +1,59 @@
+package com.quotewidgetpro.widget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the CSS color codec every settings read and write goes
+ * through, next to the String.format and Long.parseLong version it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ColorCodecBenchmark {
+    private final int[] colors = { 0xFF000000, 0xFFFFFFFF, 0x80336699, 0xCCF4A261, 0x00000000, 0xFF2A9D8F };
+    private final String[] rgb = { "#000000", "#FFFFFF", "#336699", "#F4A261", "#e9c46a", "#2A9D8F" };
+    private final String[] rgba = { "#000000FF", "#FFFFFFFF", "#33669980", "#F4A261CC", "#e9c46a00", "#2A9D8FFF" };
+    private int next;
+
+    private int nextIndex() {
+        next = next + 1 == colors.length ? 0 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    public String format() {
+        return CssColors.format(colors[nextIndex()]);
+    }
+
+    @Benchmark
+    public int parseRgb() {
+        return CssColors.parse(rgb[nextIndex()]);
+    }
+
+    @Benchmark
+    public int parseRgba() {
+        return CssColors.parse(rgba[nextIndex()]);
+    }
+
+    /** The module's original toCssColor. */
+    @Benchmark
+    public String formatWithStringFormat() {
+        int color = colors[nextIndex()];
+        return String.format("#%02X%02X%02X%02X",
+                (color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF, (color >> 24) & 0xFF);
+    }
+
+    /** The #RRGGBBAA branch of the module's original parseCssColor. */
+    @Benchmark
+    public int parseRgbaWithParseLong() {
+        long val = Long.parseLong(rgba[nextIndex()].substring(1), 16);
+        return (int) (((val & 0xFF) << 24) | (val >> 8));
+    }
+}
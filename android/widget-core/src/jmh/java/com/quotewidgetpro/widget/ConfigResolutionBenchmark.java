@@ -0,0 +1,76 @@
+package com.quotewidgetpro.widget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving a widget's effective settings from its overrides and the defaults,
+ * plus the per-style lookups done on the result: font weight variant and
+ * background shape. This is the work a config cache miss costs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConfigResolutionBenchmark {
+    private static final String[] WEIGHTS = { "100", "300", "400", "500", "700", "900", "bold", "regular" };
+    private static final int[] RADII = { 0, 4, 12, 20, 28, 36, 44, 64 };
+
+    private WidgetSettingsRecord defaults;
+    private WidgetSettingsRecord own;
+    private WidgetSettingsRecord empty;
+    private int next;
+
+    @Setup
+    public void createRecords() {
+        defaults = new WidgetSettingsRecord()
+                .setFontFamily("serif")
+                .setFontSize(16)
+                .setTextColor(false, 0xFF222222)
+                .setBackgroundColor(false, 0xFFFAFAFA)
+                .setRefreshInterval(30);
+        own = new WidgetSettingsRecord()
+                .setFontWeight("700")
+                .setBackgroundOpacity(0.8f)
+                .setBorderRadius(24);
+        empty = new WidgetSettingsRecord();
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & 7;
+        return next;
+    }
+
+    /** A widget with a few overrides of its own over customized defaults. */
+    @Benchmark
+    public WidgetConfig resolve() {
+        return WidgetConfig.resolve(defaults, own);
+    }
+
+    /** A widget that only follows the defaults. */
+    @Benchmark
+    public WidgetConfig resolveDefaultsOnly() {
+        return WidgetConfig.resolve(defaults, empty);
+    }
+
+    @Benchmark
+    public int fontWeightVariant() {
+        return FontWeights.variant(WEIGHTS[nextIndex()]);
+    }
+
+    @Benchmark
+    public int fontWeightNumeric() {
+        return FontWeights.numeric(WEIGHTS[nextIndex()]);
+    }
+
+    @Benchmark
+    public int backgroundShape() {
+        return BackgroundShapes.radiusIndex(RADII[nextIndex()]);
+    }
+}
@@ -0,0 +1,193 @@
+package com.quotewidgetpro.widget;
+
+import com.quotewidgetpro.QuoteStore;
+import com.quotewidgetpro.QuoteStoreWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The fit search QuoteTextSizer runs on a memo miss, over every quote in a
+ * store, for a default-size widget (250x110dp, 14sp base font) on a 2.75x
+ * screen. On device each measurement is a StaticLayout; here it is
+ * {@link WrapMeasurer}, a greedy word wrap over per-character advances, so
+ * the numbers track the search and the number of measurements it makes
+ * rather than Android's text stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+public class TextFitterBenchmark {
+    private static final String[] WORDS = {
+            "life", "is", "what", "happens", "when", "you", "are", "busy", "making", "other", "plans",
+            "the", "only", "way", "to", "do", "great", "work", "love", "courage", "wisdom", "begins",
+            "Imagination", "understanding", "I", "a", "extraordinary", "will",
+    };
+
+    private static final float DENSITY = 2.75f;
+    private static final int WIDTH_PX = Math.round(210 * DENSITY);
+    private static final int HEIGHT_PX = Math.round(70 * DENSITY);
+    private static final float BASE_SP = 14f;
+    private static final float MIN_SP = 10f;
+
+    @Param({ "1000", "100000" })
+    public int size;
+
+    private File file;
+    private QuoteStore store;
+    private String[] authors;
+    private final WrapMeasurer measurer = new WrapMeasurer(DENSITY);
+    private int next;
+
+    @Setup(Level.Trial)
+    public void writeStore() throws IOException {
+        file = File.createTempFile("quotes-" + size, ".bin");
+        Random random = new Random(size);
+        try (QuoteStoreWriter writer = new QuoteStoreWriter(file)) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < size; i++) {
+                text.setLength(0);
+                // 5 to 60 words, so some quotes fill the widget and some overflow it
+                int length = 5 + random.nextInt(56);
+                for (int w = 0; w < length; w++) {
+                    if (w > 0) {
+                        text.append(' ');
+                    }
+                    text.append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                writer.add(text.append('.').toString(), "Author " + random.nextInt(1 + size / 20),
+                        Collections.<String>emptyList());
+            }
+            writer.commit();
+        }
+        store = QuoteStore.openFile(file);
+        authors = new String[store.getAuthorCount()];
+        for (int i = 0; i < authors.length; i++) {
+            authors[i] = "— " + store.getAuthor(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteStore() {
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /** Fits one quote after another, as a stream of memo misses would. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public float fitOne() {
+        int index = next;
+        next = next + 1 == size ? 0 : next + 1;
+        return fit(index);
+    }
+
+    /** Fits every quote in the store once. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public float fitCorpus() {
+        float total = 0;
+        for (int i = 0; i < size; i++) {
+            total += fit(i);
+        }
+        return total;
+    }
+
+    private float fit(int index) {
+        return TextFitter.fit(measurer, store.getText(index), authors[store.getAuthorIndex(index)], WIDTH_PX,
+                HEIGHT_PX, MIN_SP, BASE_SP * 2f);
+    }
+
+    /**
+     * Lays text out the way StaticLayout does for plain Latin text: words are
+     * placed greedily, and a word wider than a line is broken across lines.
+     * Advances are rough averages of a proportional sans-serif, in ems.
+     */
+    static final class WrapMeasurer implements TextFitter.Measurer {
+        private static final float LINE_HEIGHT_EM = 1.17f;
+        private static final float SPACE_EM = 0.25f;
+        private static final float AUTHOR_SCALE = 0.8f;
+        private static final float LINE_SPACING_DP = 2f;
+
+        private final float density;
+
+        WrapMeasurer(float density) {
+            this.density = density;
+        }
+
+        @Override
+        public int measureHeight(String text, String author, float textSizeSp, int widthPx) {
+            float textPx = textSizeSp * density;
+            float spacingPx = LINE_SPACING_DP * density;
+            int lines = countLines(text, textPx, widthPx);
+            float quoteHeight = lines * (textPx * LINE_HEIGHT_EM + spacingPx) - spacingPx;
+            return (int) Math.ceil(quoteHeight + textPx * AUTHOR_SCALE * LINE_HEIGHT_EM);
+        }
+
+        private static int countLines(String text, float textPx, int widthPx) {
+            float space = SPACE_EM * textPx;
+            int lines = 1;
+            float line = 0;
+            float word = 0;
+            for (int i = 0; i <= text.length(); i++) {
+                char c = i < text.length() ? text.charAt(i) : ' ';
+                if (c != ' ') {
+                    word += advance(c) * textPx;
+                    continue;
+                }
+                if (word == 0) {
+                    continue;
+                }
+                if (line > 0 && line + space + word <= widthPx) {
+                    line += space + word;
+                } else if (line == 0 && word <= widthPx) {
+                    line = word;
+                } else {
+                    if (line > 0) {
+                        lines++;
+                    }
+                    lines += (int) (word / widthPx);
+                    line = word % widthPx;
+                }
+                word = 0;
+            }
+            return lines;
+        }
+
+        private static float advance(char c) {
+            switch (c) {
+                case 'i':
+                case 'l':
+                case 'j':
+                case 't':
+                case 'f':
+                case 'I':
+                case '.':
+                case ',':
+                case '\'':
+                    return 0.28f;
+                case 'm':
+                case 'w':
+                case 'M':
+                case 'W':
+                    return 0.85f;
+                default:
+                    return Character.isUpperCase(c) ? 0.65f : 0.52f;
+            }
+        }
+    }
+}
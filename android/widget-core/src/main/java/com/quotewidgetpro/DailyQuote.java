@@ -0,0 +1,72 @@
+package com.quotewidgetpro;
+
+import java.util.TimeZone;
+
+/**
+ * The quote of the day as a pure function of the local date, a seed and the
+ * corpus, so every widget sharing a seed and the app agree on it without
+ * storing or exchanging anything. Consecutive days walk a keyed permutation
+ * of the corpus, so no quote repeats until every other one has had its day;
+ * the key changes with the seed, the corpus version and each full pass.
+ *
+ * Uses only 32-bit integer arithmetic so src/dailyQuote.ts reproduces it
+ * bit for bit with Math.imul. Keep the two in step.
+ */
+public final class DailyQuote {
+    public static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static final int ROUNDS = 4;
+
+    private DailyQuote() {
+    }
+
+    /** Days since 1970-01-01 on the local calendar of {@code zone} at {@code millis}. */
+    public static long localEpochDay(long millis, TimeZone zone) {
+        return Math.floorDiv(millis + zone.getOffset(millis), DAY_MILLIS);
+    }
+
+    /**
+     * Index of the quote for {@code epochDay}, or -1 if the corpus is empty.
+     */
+    public static int index(long epochDay, int seed, int corpusVersion, int corpusSize) {
+        if (corpusSize <= 0) {
+            return -1;
+        }
+        int pass = (int) Math.floorDiv(epochDay, corpusSize);
+        int day = (int) Math.floorMod(epochDay, (long) corpusSize);
+        int key = mix(mix(mix(seed) ^ corpusVersion) ^ pass);
+        return permute(day, corpusSize, key);
+    }
+
+    /** Feistel permutation of {@code [0, size)} with cycle walking, as in {@link QuotePermutation}. */
+    static int permute(int index, int size, int key) {
+        if (size == 1) {
+            return 0;
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(size - 1);
+        int half = (bits + 1) / 2;
+        int mask = (1 << half) - 1;
+        int value = index;
+        do {
+            int left = (value >>> half) & mask;
+            int right = value & mask;
+            for (int round = 0; round < ROUNDS; round++) {
+                int next = left ^ (mix((right ^ key) + round * 0x9E3779B9) & mask);
+                left = right;
+                right = next;
+            }
+            value = (left << half) | right;
+        } while (value >= size);
+        return value;
+    }
+
+    // MurmurHash3's 32-bit finalizer
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
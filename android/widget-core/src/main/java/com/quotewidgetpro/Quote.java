@@ -0,0 +1,11 @@
+package com.quotewidgetpro;
+
+public final class Quote {
+    public final String text;
+    public final String author;
+
+    public Quote(String text, String author) {
+        this.text = text;
+        this.author = author;
+    }
+}
@@ -0,0 +1,129 @@
+package com.quotewidgetpro;
+
+/**
+ * Immutable set of quote indexes in {@code [0, size)}, one bit per quote, with
+ * a rank directory so the k-th member is found without scanning: the set bits
+ * before every block of {@link #WORDS_PER_BLOCK} words are counted once up
+ * front, {@link #select} binary-searches those counts and then looks at no
+ * more than one block. That is O(log(size)) per pick, and the directory costs
+ * one int per 512 quotes.
+ */
+public final class QuoteBitSet {
+    private static final int WORDS_PER_BLOCK = 8;
+
+    private final long[] words;
+    private final int size;
+    private final int[] blockRanks;
+    private final int cardinality;
+    private final int fingerprint;
+
+    /** Takes ownership of {@code words}; bits at or past {@code size} must be clear. */
+    QuoteBitSet(long[] words, int size) {
+        this.words = words;
+        this.size = size;
+        this.blockRanks = new int[(words.length + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK];
+        int rank = 0;
+        int hash = size;
+        for (int i = 0; i < words.length; i++) {
+            if (i % WORDS_PER_BLOCK == 0) {
+                blockRanks[i / WORDS_PER_BLOCK] = rank;
+            }
+            rank += Long.bitCount(words[i]);
+            hash = 31 * hash + (int) (words[i] ^ (words[i] >>> 32));
+        }
+        this.cardinality = rank;
+        this.fingerprint = hash;
+    }
+
+    static int wordCount(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    /** Number of quotes the set ranges over, members or not. */
+    public int size() {
+        return size;
+    }
+
+    /** Number of members. */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Hash of the members. Two sets with the same fingerprint almost
+     * certainly hold the same quotes, which lets a widget notice its filter
+     * now matches different ones without keeping the old set.
+     */
+    public int fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * The members ranked in {@code [fromRank, toRank)} by {@code lengths}, a
+     * length index of the same corpus: this set limited to one run of the
+     * length order. Walks the run once.
+     */
+    public QuoteBitSet withinRanks(QuoteLengthIndex lengths, int fromRank, int toRank) {
+        long[] result = new long[words.length];
+        for (int rank = fromRank; rank < toRank; rank++) {
+            int index = lengths.get(rank);
+            if (get(index)) {
+                result[index >>> 6] |= 1L << index;
+            }
+        }
+        return new QuoteBitSet(result, size);
+    }
+
+    public boolean get(int index) {
+        if (index < 0 || index >= size) {
+            return false;
+        }
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /** Number of members below {@code index}. */
+    public int rank(int index) {
+        if (index <= 0) {
+            return 0;
+        }
+        if (index >= size) {
+            return cardinality;
+        }
+        int word = index >>> 6;
+        int rank = blockRanks[word / WORDS_PER_BLOCK];
+        for (int i = word - word % WORDS_PER_BLOCK; i < word; i++) {
+            rank += Long.bitCount(words[i]);
+        }
+        return rank + Long.bitCount(words[word] & ((1L << index) - 1));
+    }
+
+    /** Index of the member with {@code rank} members below it. */
+    public int select(int rank) {
+        if (rank < 0 || rank >= cardinality) {
+            throw new IndexOutOfBoundsException("Member " + rank + " of " + cardinality);
+        }
+        // Last block starting at or below the rank
+        int low = 0;
+        int high = blockRanks.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blockRanks[mid] <= rank) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int remaining = rank - blockRanks[low];
+        int word = low * WORDS_PER_BLOCK;
+        int bits = Long.bitCount(words[word]);
+        while (remaining >= bits) {
+            remaining -= bits;
+            bits = Long.bitCount(words[++word]);
+        }
+        long value = words[word];
+        for (; remaining > 0; remaining--) {
+            value &= value - 1;
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(value);
+    }
+}
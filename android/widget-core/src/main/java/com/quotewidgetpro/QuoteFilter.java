@@ -0,0 +1,165 @@
+package com.quotewidgetpro;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Which quotes a widget may show. A quote matches when it is by one of
+ * {@link #getAuthors()} (any author if empty), carries at least one of
+ * {@link #getTags()} (any tags if empty), is by none of the excluded authors,
+ * carries none of the excluded tags and its length in chars is within
+ * [minLength, maxLength], where 0 leaves that end open.
+ *
+ * Immutable; name lists are kept sorted so equal filters compare and hash
+ * equal however they were built. {@link QuoteIndex#match} evaluates one.
+ */
+public final class QuoteFilter {
+    public static final QuoteFilter NONE = new QuoteFilter(null, null, null, null, 0, 0);
+
+    private final String[] authors;
+    private final String[] excludedAuthors;
+    private final String[] tags;
+    private final String[] excludedTags;
+    private final int minLength;
+    private final int maxLength;
+
+    public QuoteFilter(Collection<String> authors, Collection<String> excludedAuthors, Collection<String> tags,
+            Collection<String> excludedTags, int minLength, int maxLength) {
+        this.authors = sortedAuthors(authors);
+        this.excludedAuthors = sortedAuthors(excludedAuthors);
+        this.tags = sortedTags(tags);
+        this.excludedTags = sortedTags(excludedTags);
+        this.minLength = Math.max(0, minLength);
+        this.maxLength = Math.max(0, maxLength);
+    }
+
+    /** Tags are matched trimmed and lowercased, both in the store and in filters. */
+    public static String normalizeTag(String tag) {
+        return tag == null ? "" : tag.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String[] sortedAuthors(Collection<String> names) {
+        TreeSet<String> sorted = new TreeSet<>();
+        if (names != null) {
+            for (String name : names) {
+                if (name != null && !name.trim().isEmpty()) {
+                    sorted.add(name.trim());
+                }
+            }
+        }
+        return sorted.toArray(new String[0]);
+    }
+
+    private static String[] sortedTags(Collection<String> names) {
+        TreeSet<String> sorted = new TreeSet<>();
+        if (names != null) {
+            for (String name : names) {
+                String tag = normalizeTag(name);
+                if (!tag.isEmpty()) {
+                    sorted.add(tag);
+                }
+            }
+        }
+        return sorted.toArray(new String[0]);
+    }
+
+    /** True if every quote matches. */
+    public boolean isEmpty() {
+        return authors.length == 0 && excludedAuthors.length == 0 && tags.length == 0
+                && excludedTags.length == 0 && minLength == 0 && maxLength == 0;
+    }
+
+    public List<String> getAuthors() {
+        return Collections.unmodifiableList(Arrays.asList(authors));
+    }
+
+    public List<String> getExcludedAuthors() {
+        return Collections.unmodifiableList(Arrays.asList(excludedAuthors));
+    }
+
+    public List<String> getTags() {
+        return Collections.unmodifiableList(Arrays.asList(tags));
+    }
+
+    public List<String> getExcludedTags() {
+        return Collections.unmodifiableList(Arrays.asList(excludedTags));
+    }
+
+    public int getMinLength() {
+        return minLength;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        writeNames(out, authors);
+        writeNames(out, excludedAuthors);
+        writeNames(out, tags);
+        writeNames(out, excludedTags);
+        out.writeInt(minLength);
+        out.writeInt(maxLength);
+    }
+
+    public static QuoteFilter readFrom(DataInputStream in) throws IOException {
+        List<String> authors = readNames(in);
+        List<String> excludedAuthors = readNames(in);
+        List<String> tags = readNames(in);
+        List<String> excludedTags = readNames(in);
+        return new QuoteFilter(authors, excludedAuthors, tags, excludedTags, in.readInt(), in.readInt());
+    }
+
+    private static void writeNames(DataOutputStream out, String[] names) throws IOException {
+        if (names.length > 0xFFFF) {
+            throw new IOException("Too many names in quote filter: " + names.length);
+        }
+        out.writeShort(names.length);
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+    }
+
+    private static List<String> readNames(DataInputStream in) throws IOException {
+        String[] names = new String[in.readUnsignedShort()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = in.readUTF();
+        }
+        return Arrays.asList(names);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof QuoteFilter)) {
+            return false;
+        }
+        QuoteFilter other = (QuoteFilter) o;
+        return minLength == other.minLength
+                && maxLength == other.maxLength
+                && Arrays.equals(authors, other.authors)
+                && Arrays.equals(excludedAuthors, other.excludedAuthors)
+                && Arrays.equals(tags, other.tags)
+                && Arrays.equals(excludedTags, other.excludedTags);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(authors);
+        result = 31 * result + Arrays.hashCode(excludedAuthors);
+        result = 31 * result + Arrays.hashCode(tags);
+        result = 31 * result + Arrays.hashCode(excludedTags);
+        result = 31 * result + minLength;
+        result = 31 * result + maxLength;
+        return result;
+    }
+}
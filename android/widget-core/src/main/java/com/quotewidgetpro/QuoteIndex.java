@@ -0,0 +1,201 @@
+package com.quotewidgetpro;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-author and per-tag membership of a {@link QuoteStore}, built in two
+ * passes over its records so a {@link QuoteFilter} is evaluated with word-wide
+ * bit operations instead of reading every quote.
+ *
+ * Each author's and tag's quotes are kept as a sorted list of indexes, all
+ * lists packed into one array (4 bytes per quote per name). Names covering at
+ * least 1/{@link #DENSE_RATIO} of the corpus also get a bitset, which is then
+ * no larger than their list and ORs in a word at a time. Length bounds take
+ * the run of quotes in range from a {@link QuoteLengthIndex}.
+ */
+public final class QuoteIndex {
+    private static final int DENSE_RATIO = 32;
+
+    private final int size;
+    private final Map<String, Integer> authorIds;
+    private final Postings authors;
+    private final Map<String, Integer> tagIds;
+    private final Postings tags;
+    private final QuoteLengthIndex lengths;
+
+    private QuoteIndex(int size, Map<String, Integer> authorIds, Postings authors,
+            Map<String, Integer> tagIds, Postings tags, QuoteLengthIndex lengths) {
+        this.size = size;
+        this.authorIds = authorIds;
+        this.authors = authors;
+        this.tagIds = tagIds;
+        this.tags = tags;
+        this.lengths = lengths;
+    }
+
+    public static QuoteIndex build(QuoteStore store) {
+        return build(store, QuoteLengthIndex.build(store));
+    }
+
+    /** Builds the index, sharing {@code lengths}, which must be of the same store. */
+    public static QuoteIndex build(QuoteStore store, QuoteLengthIndex lengths) {
+        int size = store.size();
+
+        Map<String, Integer> authorIds = new HashMap<>();
+        for (int i = 0; i < store.getAuthorCount(); i++) {
+            authorIds.put(store.getAuthor(i), i);
+        }
+        int[] authorStarts = new int[store.getAuthorCount() + 1];
+        for (int i = 0; i < size; i++) {
+            authorStarts[store.getAuthorIndex(i) + 1]++;
+        }
+        int[] authorQuotes = new int[size];
+        int[] next = toStarts(authorStarts);
+        for (int i = 0; i < size; i++) {
+            authorQuotes[next[store.getAuthorIndex(i)]++] = i;
+        }
+
+        Map<String, Integer> tagIds = new HashMap<>();
+        for (int i = 0; i < store.getTagCount(); i++) {
+            tagIds.put(store.getTag(i), i);
+        }
+        int[] tagStarts = new int[store.getTagCount() + 1];
+        int tagged = 0;
+        for (int i = 0; i < size; i++) {
+            int count = store.getQuoteTagCount(i);
+            for (int n = 0; n < count; n++) {
+                tagStarts[store.getQuoteTag(i, n) + 1]++;
+            }
+            tagged += count;
+        }
+        int[] tagQuotes = new int[tagged];
+        next = toStarts(tagStarts);
+        for (int i = 0; i < size; i++) {
+            int count = store.getQuoteTagCount(i);
+            for (int n = 0; n < count; n++) {
+                tagQuotes[next[store.getQuoteTag(i, n)]++] = i;
+            }
+        }
+
+        return new QuoteIndex(size, authorIds, new Postings(authorStarts, authorQuotes, size),
+                tagIds, new Postings(tagStarts, tagQuotes, size), lengths);
+    }
+
+    /**
+     * Turns per-name counts (shifted up by one) into start offsets in place and
+     * returns a copy to use as fill cursors.
+     */
+    private static int[] toStarts(int[] starts) {
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] += starts[i - 1];
+        }
+        int[] cursors = new int[starts.length - 1];
+        System.arraycopy(starts, 0, cursors, 0, cursors.length);
+        return cursors;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Quotes matching {@code filter}. */
+    public QuoteBitSet match(QuoteFilter filter) {
+        long[] words = new long[QuoteBitSet.wordCount(size)];
+        if (filter.getAuthors().isEmpty()) {
+            fillAll(words);
+        } else {
+            orAll(words, authors, authorIds, filter.getAuthors());
+        }
+        if (!filter.getTags().isEmpty()) {
+            long[] anyTag = new long[words.length];
+            orAll(anyTag, tags, tagIds, filter.getTags());
+            for (int i = 0; i < words.length; i++) {
+                words[i] &= anyTag[i];
+            }
+        }
+        andNotAll(words, authors, authorIds, filter.getExcludedAuthors());
+        andNotAll(words, tags, tagIds, filter.getExcludedTags());
+        if (filter.getMinLength() > 0 || filter.getMaxLength() > 0) {
+            lengths.retain(words, filter.getMinLength(),
+                    filter.getMaxLength() > 0 ? filter.getMaxLength() : Integer.MAX_VALUE);
+        }
+        return new QuoteBitSet(words, size);
+    }
+
+    private void fillAll(long[] words) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = -1L;
+        }
+        if (size % 64 != 0) {
+            words[words.length - 1] = (1L << size) - 1;
+        }
+    }
+
+    private static void orAll(long[] words, Postings postings, Map<String, Integer> ids, List<String> names) {
+        for (String name : names) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                postings.or(words, id);
+            }
+        }
+    }
+
+    private static void andNotAll(long[] words, Postings postings, Map<String, Integer> ids, List<String> names) {
+        for (String name : names) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                postings.andNot(words, id);
+            }
+        }
+    }
+
+    /** Quote lists of a set of names, with bitsets for the dense ones. */
+    private static final class Postings {
+        private final int[] starts;
+        private final int[] quotes;
+        private final long[][] dense;
+
+        Postings(int[] starts, int[] quotes, int size) {
+            this.starts = starts;
+            this.quotes = quotes;
+            this.dense = new long[starts.length - 1][];
+            for (int id = 0; id < dense.length; id++) {
+                if ((long) (starts[id + 1] - starts[id]) * DENSE_RATIO >= size) {
+                    long[] words = new long[QuoteBitSet.wordCount(size)];
+                    for (int i = starts[id]; i < starts[id + 1]; i++) {
+                        words[quotes[i] >>> 6] |= 1L << quotes[i];
+                    }
+                    dense[id] = words;
+                }
+            }
+        }
+
+        void or(long[] words, int id) {
+            if (dense[id] != null) {
+                long[] bits = dense[id];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] |= bits[i];
+                }
+                return;
+            }
+            for (int i = starts[id]; i < starts[id + 1]; i++) {
+                words[quotes[i] >>> 6] |= 1L << quotes[i];
+            }
+        }
+
+        void andNot(long[] words, int id) {
+            if (dense[id] != null) {
+                long[] bits = dense[id];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] &= ~bits[i];
+                }
+                return;
+            }
+            for (int i = starts[id]; i < starts[id + 1]; i++) {
+                words[quotes[i] >>> 6] &= ~(1L << quotes[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.quotewidgetpro;
+
+/**
+ * Quote indexes of a {@link QuoteStore} sorted by text length, with the rank
+ * at which each length starts, so the quotes within a length range are a
+ * contiguous run found in O(1) rather than by reading every quote. Built in
+ * two passes with a counting sort; costs one int per quote plus one per
+ * distinct length up to the longest quote.
+ *
+ * Lengths past {@link #MAX_LENGTH} chars are counted as that length.
+ */
+public final class QuoteLengthIndex {
+    public static final int MAX_LENGTH = 0xFFFF;
+
+    private final int[] byLength;
+    // lengthStarts[n] is the rank of the first quote at least n chars long
+    private final int[] lengthStarts;
+
+    private QuoteLengthIndex(int[] byLength, int[] lengthStarts) {
+        this.byLength = byLength;
+        this.lengthStarts = lengthStarts;
+    }
+
+    public static QuoteLengthIndex build(QuoteStore store) {
+        int size = store.size();
+        int[] lengths = new int[size];
+        int longest = 0;
+        for (int i = 0; i < size; i++) {
+            int length = store.getLength(i);
+            if (length < 0) {
+                // Stores from before lengths were recorded
+                length = store.getText(i).length();
+            }
+            lengths[i] = Math.min(length, MAX_LENGTH);
+            longest = Math.max(longest, lengths[i]);
+        }
+
+        int[] starts = new int[longest + 2];
+        for (int length : lengths) {
+            starts[length + 1]++;
+        }
+        for (int n = 1; n < starts.length; n++) {
+            starts[n] += starts[n - 1];
+        }
+        int[] next = new int[longest + 1];
+        System.arraycopy(starts, 0, next, 0, next.length);
+        int[] byLength = new int[size];
+        for (int i = 0; i < size; i++) {
+            byLength[next[lengths[i]]++] = i;
+        }
+        return new QuoteLengthIndex(byLength, starts);
+    }
+
+    public int size() {
+        return byLength.length;
+    }
+
+    /** Number of quotes shorter than {@code length} chars. */
+    public int rankOf(int length) {
+        if (length <= 0) {
+            return 0;
+        }
+        if (length >= lengthStarts.length) {
+            return byLength.length;
+        }
+        return lengthStarts[length];
+    }
+
+    /** Index of the quote at {@code rank} in length order; ties keep corpus order. */
+    public int get(int rank) {
+        return byLength[rank];
+    }
+
+    /**
+     * Clears from {@code words}, a bitset over the corpus, quotes shorter than
+     * {@code minLength} or longer than {@code maxLength}.
+     */
+    void retain(long[] words, int minLength, int maxLength) {
+        int from = rankOf(minLength);
+        int to = maxLength >= MAX_LENGTH ? byLength.length : rankOf(maxLength + 1);
+        if (from == 0 && to == byLength.length) {
+            return;
+        }
+        long[] range = new long[words.length];
+        for (int rank = from; rank < to; rank++) {
+            int index = byLength[rank];
+            range[index >>> 6] |= 1L << index;
+        }
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= range[i];
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.quotewidgetpro;
+
+/**
+ * Keyed pseudo-random permutation of {@code [0, size)} built from a small
+ * Feistel network with cycle walking. Walking {@code permute(0..size-1)} with
+ * a fixed seed visits every index exactly once, in an order that looks random,
+ * without ever materializing the order. Each call is O(1): the Feistel domain
+ * is the next even power of two, so on average fewer than four rounds of
+ * walking are needed to land back inside {@code [0, size)}.
+ */
+public final class QuotePermutation {
+    private static final int ROUNDS = 4;
+
+    private QuotePermutation() {
+    }
+
+    public static int permute(int index, int size, long seed) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+        if (size == 1) {
+            return 0;
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(size - 1);
+        int half = (bits + 1) / 2;
+        int mask = (1 << half) - 1;
+
+        int value = index;
+        do {
+            value = encrypt(value, half, mask, seed);
+        } while (value >= size);
+        return value;
+    }
+
+    private static int encrypt(int value, int half, int mask, long seed) {
+        int left = (value >>> half) & mask;
+        int right = value & mask;
+        for (int round = 0; round < ROUNDS; round++) {
+            int next = left ^ (mix(right, seed, round) & mask);
+            left = right;
+            right = next;
+        }
+        return (left << half) | right;
+    }
+
+    private static int mix(int value, long seed, int round) {
+        long h = (value * 0x9E3779B97F4A7C15L) ^ (seed + round * 0xBF58476D1CE4E5B9L);
+        h ^= h >>> 31;
+        h *= 0x94D049BB133111EBL;
+        h ^= h >>> 29;
+        return (int) h;
+    }
+}
@@ -0,0 +1,356 @@
+package com.quotewidgetpro;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only inverted index over the text and author of every quote in a
+ * {@link QuoteStore}, written by {@link SearchIndexWriter} next to the store
+ * so it is mapped, not rebuilt, on cold start.
+ *
+ * Layout (big-endian): a 32 byte header (magic, version, quote count, the
+ * store's corpus version, term count, then offsets of the term table,
+ * postings and name blob), a table of 16 byte entries {name offset, name
+ * length, postings offset, quote count} sorted by the terms' UTF-8 bytes, the
+ * postings of all terms back to back, and the UTF-8 names.
+ *
+ * A query matches quotes holding every one of its terms, each either as a
+ * whole word or as the start of one, so results narrow as the user types.
+ * Quotes are ranked by the summed inverse document frequency of the words
+ * they matched, with exact words and words in the author's name weighted up.
+ */
+public final class QuoteSearchIndex {
+    public static final String FILE_NAME = "quotes.search";
+    public static final int MAX_PAGE_SIZE = 100;
+
+    static final int MAGIC = 0x51575358; // "QWSX"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int TERM_ENTRY_SIZE = 16;
+
+    private static final float PREFIX_WEIGHT = 0.6f;
+    private static final float AUTHOR_WEIGHT = 1.5f;
+
+    /** One page of matches, best first. */
+    public static final class Result {
+        public static final Result EMPTY = new Result(0, new int[0]);
+
+        /** Number of matching quotes across all pages. */
+        public final int total;
+        public final int[] indexes;
+
+        Result(int total, int[] indexes) {
+            this.total = total;
+            this.indexes = indexes;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int corpusVersion;
+    private final int termCount;
+    private final int termTable;
+    private final int postings;
+    private final int blob;
+
+    // Scratch space reused across queries: a quote's score is valid only while
+    // its stamp equals the stamp of the query term being applied
+    private float[] scores;
+    private int[] stamps;
+    private int stamp;
+    private int[] candidates;
+
+    private QuoteSearchIndex(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a quote search index");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported quote search index version: " + buffer.getInt(4));
+        }
+        this.buffer = buffer;
+        this.count = buffer.getInt(8);
+        this.corpusVersion = buffer.getInt(12);
+        this.termCount = buffer.getInt(16);
+        this.termTable = buffer.getInt(20);
+        this.postings = buffer.getInt(24);
+        this.blob = buffer.getInt(28);
+
+        if (count < 0 || termCount < 0
+                || termTable + (long) termCount * TERM_ENTRY_SIZE > postings
+                || postings > blob
+                || blob > buffer.capacity()) {
+            throw new IOException("Corrupt quote search index header");
+        }
+    }
+
+    public static QuoteSearchIndex wrap(ByteBuffer buffer) throws IOException {
+        return new QuoteSearchIndex(buffer);
+    }
+
+    public static QuoteSearchIndex openFile(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** Number of quotes indexed. */
+    public int size() {
+        return count;
+    }
+
+    public int getCorpusVersion() {
+        return corpusVersion;
+    }
+
+    public int getTermCount() {
+        return termCount;
+    }
+
+    /** Whether this index was built from {@code store}'s current quotes. */
+    public boolean isCurrent(QuoteStore store) {
+        return store.size() == count && store.getCorpusVersion() == corpusVersion;
+    }
+
+    /**
+     * Returns up to {@code limit} (at most {@link #MAX_PAGE_SIZE}) matches for
+     * {@code query}, skipping the {@code offset} best.
+     */
+    public synchronized Result search(String query, int offset, int limit) {
+        List<String> terms = distinct(QuoteTokenizer.tokenize(query));
+        limit = Math.min(limit, MAX_PAGE_SIZE);
+        if (terms.isEmpty() || offset < 0 || limit <= 0 || count == 0) {
+            return Result.EMPTY;
+        }
+
+        // Resolve each query term to the range of index terms it prefixes
+        int[] lows = new int[terms.size()];
+        int[] highs = new int[terms.size()];
+        long[] costs = new long[terms.size()];
+        Integer[] order = new Integer[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            byte[] prefix = terms.get(i).getBytes(StandardCharsets.UTF_8);
+            lows[i] = firstTerm(prefix, false);
+            highs[i] = firstTerm(prefix, true);
+            if (lows[i] == highs[i]) {
+                return Result.EMPTY;
+            }
+            for (int term = lows[i]; term < highs[i]; term++) {
+                costs[i] += quoteCount(term);
+            }
+            order[i] = i;
+        }
+        // Start from the rarest term so later ones only touch survivors
+        Arrays.sort(order, (a, b) -> Long.compare(costs[a], costs[b]));
+
+        ensureScratch();
+        int first = order[0];
+        int matched = collect(terms.get(first), lows[first], highs[first], true);
+        for (int i = 1; i < order.length && matched > 0; i++) {
+            int term = order[i];
+            collect(terms.get(term), lows[term], highs[term], false);
+            matched = retainStamped(matched);
+        }
+        return page(matched, offset, limit);
+    }
+
+    private static List<String> distinct(List<String> terms) {
+        List<String> result = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            if (!result.contains(term)) {
+                result.add(term);
+            }
+        }
+        return result;
+    }
+
+    private void ensureScratch() {
+        if (scores == null) {
+            scores = new float[count];
+            stamps = new int[count];
+            candidates = new int[count];
+        }
+        if (stamp > Integer.MAX_VALUE - 64) {
+            Arrays.fill(stamps, 0);
+            stamp = 0;
+        }
+    }
+
+    /**
+     * Scores quotes holding any index term in {@code [low, high)}. The first
+     * query term adds every such quote to the candidates; later ones only
+     * score quotes still stamped by the previous term. A quote is scored once
+     * per query term, by the first index term found, which is the exact word
+     * when present because it sorts before its extensions.
+     */
+    private int collect(String queryTerm, int low, int high, boolean first) {
+        int previous = stamp;
+        int current = ++stamp;
+        int added = 0;
+        int queryLength = queryTerm.getBytes(StandardCharsets.UTF_8).length;
+        for (int term = low; term < high; term++) {
+            int entry = termTable + term * TERM_ENTRY_SIZE;
+            int quotes = buffer.getInt(entry + 12);
+            float weight = (float) Math.log(1.0 + (double) count / quotes);
+            if (buffer.getInt(entry + 4) != queryLength) {
+                weight *= PREFIX_WEIGHT;
+            }
+            int position = postings + buffer.getInt(entry + 8);
+            int quote = -1;
+            for (int n = 0; n < quotes; n++) {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = buffer.get(position++);
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                quote += (value >>> 1) + 1;
+                int seen = stamps[quote];
+                if (seen == current || (!first && seen != previous)) {
+                    continue;
+                }
+                stamps[quote] = current;
+                float score = (value & 1) != 0 ? weight * AUTHOR_WEIGHT : weight;
+                if (first) {
+                    scores[quote] = score;
+                    candidates[added++] = quote;
+                } else {
+                    scores[quote] += score;
+                }
+            }
+        }
+        return added;
+    }
+
+    /** Drops candidates the last query term did not match. */
+    private int retainStamped(int matched) {
+        int kept = 0;
+        for (int i = 0; i < matched; i++) {
+            int quote = candidates[i];
+            if (stamps[quote] == stamp) {
+                candidates[kept++] = quote;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Picks the {@code offset + limit} best candidates with a bounded heap
+     * whose root is the worst kept so far, then returns the requested slice.
+     */
+    private Result page(int matched, int offset, int limit) {
+        if (offset >= matched) {
+            return new Result(matched, new int[0]);
+        }
+        int keep = (int) Math.min((long) offset + limit, matched);
+        int[] heap = new int[keep];
+        int size = 0;
+        for (int i = 0; i < matched; i++) {
+            int quote = candidates[i];
+            if (size < keep) {
+                heap[size] = quote;
+                siftUp(heap, size++);
+            } else if (better(quote, heap[0])) {
+                heap[0] = quote;
+                siftDown(heap, size);
+            }
+        }
+        // Pop worst first, filling from the back
+        int[] ranked = new int[keep];
+        for (int i = keep - 1; i >= 0; i--) {
+            ranked[i] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(heap, size);
+        }
+        return new Result(matched, Arrays.copyOfRange(ranked, offset, keep));
+    }
+
+    private boolean better(int a, int b) {
+        float diff = scores[a] - scores[b];
+        return diff > 0 || (diff == 0 && a < b);
+    }
+
+    private void siftUp(int[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(heap[parent], heap[i])) {
+                return;
+            }
+            swap(heap, parent, i);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size) {
+        int i = 0;
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            if (left < size && better(heap[worst], heap[left])) {
+                worst = left;
+            }
+            if (left + 1 < size && better(heap[worst], heap[left + 1])) {
+                worst = left + 1;
+            }
+            if (worst == i) {
+                return;
+            }
+            swap(heap, worst, i);
+            i = worst;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int value = heap[a];
+        heap[a] = heap[b];
+        heap[b] = value;
+    }
+
+    private int quoteCount(int term) {
+        return buffer.getInt(termTable + term * TERM_ENTRY_SIZE + 12);
+    }
+
+    /**
+     * Index of the first term that starts with {@code prefix} or sorts after
+     * it, or with {@code past} set, the first term after all those starting
+     * with it.
+     */
+    private int firstTerm(byte[] prefix, boolean past) {
+        int low = 0;
+        int high = termCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = comparePrefix(mid, prefix);
+            if (cmp < 0 || (past && cmp == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Negative, zero or positive as the term sorts before, starts with or sorts after {@code prefix}. */
+    private int comparePrefix(int term, byte[] prefix) {
+        int entry = termTable + term * TERM_ENTRY_SIZE;
+        int offset = blob + buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        int common = Math.min(length, prefix.length);
+        for (int i = 0; i < common; i++) {
+            int diff = (buffer.get(offset + i) & 0xFF) - (prefix[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length < prefix.length ? -1 : 0;
+    }
+}
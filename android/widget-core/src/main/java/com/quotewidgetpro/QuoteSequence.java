@@ -0,0 +1,179 @@
+package com.quotewidgetpro;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The rule {@link QuoteSelector} picks quotes by, kept apart from where
+ * cursors are stored: a widget walks its own {@link QuotePermutation} of the
+ * corpus, of the quotes a filter lets through, or of those in a length range,
+ * and draws a new seed when it runs off the end or what it walks changes.
+ *
+ * A position whose quote a sibling widget is showing is deferred rather than
+ * passed over: it is retried on later picks once the sibling has moved on,
+ * and at the latest before the walk starts over, so every quote still comes
+ * up once per cycle.
+ */
+public final class QuoteSequence {
+
+    /** Tells whether another widget is currently showing a quote. */
+    public interface Siblings {
+        boolean isShowing(int index);
+    }
+
+    /** One widget's place in its permutation. */
+    public static final class Cursor {
+        long seed;
+        int position;
+        int corpusSize;
+        int corpusVersion;
+        boolean started;
+        // Positions passed over for a sibling's quote, oldest first
+        int[] deferred = new int[0];
+
+        /** A cursor that hasn't picked anything yet. */
+        public Cursor() {
+        }
+
+        public Cursor(long seed, int position, int corpusSize, int corpusVersion) {
+            this(seed, position, corpusSize, corpusVersion, new int[0]);
+        }
+
+        public Cursor(long seed, int position, int corpusSize, int corpusVersion, int[] deferred) {
+            this.seed = seed;
+            this.position = position;
+            this.corpusSize = corpusSize;
+            this.corpusVersion = corpusVersion;
+            this.deferred = deferred.clone();
+            this.started = true;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public int getCorpusSize() {
+            return corpusSize;
+        }
+
+        public int getCorpusVersion() {
+            return corpusVersion;
+        }
+
+        /** Positions still to be picked this cycle that were deferred for a sibling. */
+        public int[] getDeferred() {
+            return deferred.clone();
+        }
+
+        private int takeDeferred(int i) {
+            int position = deferred[i];
+            int[] rest = new int[deferred.length - 1];
+            System.arraycopy(deferred, 0, rest, 0, i);
+            System.arraycopy(deferred, i + 1, rest, i, rest.length - i);
+            deferred = rest;
+            return position;
+        }
+    }
+
+    private QuoteSequence() {
+    }
+
+    /**
+     * Advances {@code cursor} and returns the index of the next quote, or -1
+     * if the corpus is empty. Quotes {@code siblings} (if any) reports as
+     * showing are deferred, with at most {@code maxSkips} positions deferred
+     * at a time.
+     */
+    public static int next(Cursor cursor, int corpusSize, int corpusVersion, Siblings siblings, int maxSkips,
+            Random seeds) {
+        return next(cursor, null, null, 0, corpusSize, corpusVersion, siblings, maxSkips, seeds);
+    }
+
+    /**
+     * Like {@link #next(Cursor, int, int, Siblings, int, Random)}, but walks
+     * only the members of {@code subset}: the permutation runs over member
+     * ranks, which {@link QuoteBitSet#select} turns into quote indexes. The
+     * cursor starts over whenever the subset's members change.
+     */
+    public static int next(Cursor cursor, QuoteBitSet subset, int corpusVersion, Siblings siblings, int maxSkips,
+            Random seeds) {
+        return next(cursor, subset, null, 0, subset.cardinality(), 31 * corpusVersion + subset.fingerprint(),
+                siblings, maxSkips, seeds);
+    }
+
+    /**
+     * Like {@link #next(Cursor, int, int, Siblings, int, Random)}, but walks
+     * only the quotes ranked {@code [fromRank, toRank)} by {@code lengths}:
+     * the permutation runs over positions in that run, so a length range costs
+     * nothing beyond the lookup that found it. The cursor starts over whenever
+     * the range moves.
+     */
+    public static int next(Cursor cursor, QuoteLengthIndex lengths, int fromRank, int toRank, int corpusVersion,
+            Siblings siblings, int maxSkips, Random seeds) {
+        return next(cursor, null, lengths, fromRank, toRank - fromRank, 31 * corpusVersion + fromRank,
+                siblings, maxSkips, seeds);
+    }
+
+    private static int next(Cursor cursor, QuoteBitSet subset, QuoteLengthIndex lengths, int fromRank,
+            int walkSize, int walkVersion, Siblings siblings, int maxSkips, Random seeds) {
+        if (walkSize <= 0) {
+            return -1;
+        }
+        boolean restart = !cursor.started
+                || cursor.corpusSize != walkSize
+                || cursor.corpusVersion != walkVersion;
+        if (restart) {
+            cursor.deferred = new int[0];
+        }
+        cursor.corpusSize = walkSize;
+        cursor.corpusVersion = walkVersion;
+        cursor.started = true;
+
+        // A deferred position goes first once no sibling shows its quote
+        for (int i = 0; i < cursor.deferred.length; i++) {
+            if (cursor.deferred[i] < 0 || cursor.deferred[i] >= walkSize) {
+                cursor.takeDeferred(i--);
+                continue;
+            }
+            int index = quoteAt(cursor, cursor.deferred[i], subset, lengths, fromRank, walkSize);
+            if (siblings == null || !siblings.isShowing(index)) {
+                cursor.takeDeferred(i);
+                return index;
+            }
+        }
+
+        while (true) {
+            if (restart || cursor.position >= walkSize) {
+                if (!restart && cursor.deferred.length > 0) {
+                    // Nothing else is left this cycle; a sibling showing it no longer matters
+                    return quoteAt(cursor, cursor.takeDeferred(0), subset, lengths, fromRank, walkSize);
+                }
+                cursor.seed = seeds.nextLong();
+                cursor.position = 0;
+                restart = false;
+            }
+            int position = cursor.position++;
+            int index = quoteAt(cursor, position, subset, lengths, fromRank, walkSize);
+            if (siblings == null || cursor.deferred.length >= maxSkips || !siblings.isShowing(index)) {
+                return index;
+            }
+            cursor.deferred = Arrays.copyOf(cursor.deferred, cursor.deferred.length + 1);
+            cursor.deferred[cursor.deferred.length - 1] = position;
+        }
+    }
+
+    private static int quoteAt(Cursor cursor, int position, QuoteBitSet subset, QuoteLengthIndex lengths,
+            int fromRank, int walkSize) {
+        int index = QuotePermutation.permute(position, walkSize, cursor.seed);
+        if (subset != null) {
+            return subset.select(index);
+        } else if (lengths != null) {
+            return lengths.get(fromRank + index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,195 @@
+package com.quotewidgetpro;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only view over the binary quote store produced by the
+ * {@code compileQuoteStore} Gradle task (see app/quote-store.gradle for the
+ * layout). Records are addressed by index, so reading a quote touches only its
+ * own bytes regardless of corpus size.
+ *
+ * Version 1 stores, written before quotes had tags, are still readable; their
+ * quotes have no tags and a length of -1.
+ */
+public final class QuoteStore {
+    public static final String ASSET_NAME = "quotes.bin";
+
+    static final int MAGIC = 0x51575153; // "QWQS"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 48;
+    static final int RECORD_SIZE = 20;
+    static final int AUTHOR_ENTRY_SIZE = 8;
+    static final int TAG_ENTRY_SIZE = 8;
+
+    private static final int V1_HEADER_SIZE = 32;
+    private static final int V1_RECORD_SIZE = 12;
+
+    private final ByteBuffer buffer;
+    private final int version;
+    private final int recordSize;
+    private final int count;
+    private final int authorCount;
+    private final int corpusVersion;
+    private final int recordTable;
+    private final int authorTable;
+    private final int blob;
+    private final int tagCount;
+    private final int tagTable;
+    private final int tagListTable;
+    private final int tagListLength;
+
+    private QuoteStore(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < V1_HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a quote store");
+        }
+        this.buffer = buffer;
+        this.version = buffer.getInt(4);
+        if (version == 1) {
+            this.recordSize = V1_RECORD_SIZE;
+        } else if (version == VERSION && buffer.capacity() >= HEADER_SIZE) {
+            this.recordSize = RECORD_SIZE;
+        } else {
+            throw new IOException("Unsupported quote store version: " + version);
+        }
+        this.count = buffer.getInt(8);
+        this.authorCount = buffer.getInt(12);
+        this.corpusVersion = buffer.getInt(16);
+        this.recordTable = buffer.getInt(20);
+        this.authorTable = buffer.getInt(24);
+        this.blob = buffer.getInt(28);
+        if (version == 1) {
+            this.tagCount = 0;
+            this.tagTable = blob;
+            this.tagListTable = blob;
+            this.tagListLength = 0;
+        } else {
+            this.tagCount = buffer.getInt(32);
+            this.tagTable = buffer.getInt(36);
+            this.tagListTable = buffer.getInt(40);
+            this.tagListLength = buffer.getInt(44);
+        }
+
+        if (count < 0 || authorCount < 0 || tagCount < 0 || tagListLength < 0
+                || recordTable + (long) count * recordSize > authorTable
+                || authorTable + (long) authorCount * AUTHOR_ENTRY_SIZE > tagTable
+                || tagTable + (long) tagCount * TAG_ENTRY_SIZE > tagListTable
+                || tagListTable + (long) tagListLength * 4 > blob
+                || blob > buffer.capacity()) {
+            throw new IOException("Corrupt quote store header");
+        }
+    }
+
+    /**
+     * Reads a store out of {@code buffer}, typically a read-only mapping of
+     * the file or asset holding it.
+     */
+    public static QuoteStore wrap(ByteBuffer buffer) throws IOException {
+        return new QuoteStore(buffer);
+    }
+
+    public static QuoteStore openFile(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getCorpusVersion() {
+        return corpusVersion;
+    }
+
+    public int getAuthorCount() {
+        return authorCount;
+    }
+
+    public int getTagCount() {
+        return tagCount;
+    }
+
+    public Quote get(int index) {
+        return new Quote(getText(index), getAuthor(getAuthorIndex(index)));
+    }
+
+    public String getText(int index) {
+        int record = recordOffset(index);
+        return readString(buffer.getInt(record), buffer.getInt(record + 4));
+    }
+
+    /** Length of the quote's text in chars, or -1 if this store predates lengths. */
+    public int getLength(int index) {
+        int record = recordOffset(index);
+        return version == 1 ? -1 : buffer.getInt(record + 8);
+    }
+
+    public int getAuthorIndex(int index) {
+        return buffer.getInt(recordOffset(index) + (version == 1 ? 8 : 12));
+    }
+
+    public String getAuthor(int authorIndex) {
+        if (authorIndex < 0 || authorIndex >= authorCount) {
+            throw new IndexOutOfBoundsException("Author " + authorIndex + " of " + authorCount);
+        }
+        int entry = authorTable + authorIndex * AUTHOR_ENTRY_SIZE;
+        return readString(buffer.getInt(entry), buffer.getInt(entry + 4));
+    }
+
+    public String getTag(int tagIndex) {
+        if (tagIndex < 0 || tagIndex >= tagCount) {
+            throw new IndexOutOfBoundsException("Tag " + tagIndex + " of " + tagCount);
+        }
+        int entry = tagTable + tagIndex * TAG_ENTRY_SIZE;
+        return readString(buffer.getInt(entry), buffer.getInt(entry + 4));
+    }
+
+    /** Number of tags on the quote at {@code index}. */
+    public int getQuoteTagCount(int index) {
+        if (version == 1) {
+            recordOffset(index);
+            return 0;
+        }
+        return tagListEnd(index) - tagListStart(index);
+    }
+
+    /** Tag index of the {@code n}th tag on the quote at {@code index}. */
+    public int getQuoteTag(int index, int n) {
+        int tags = getQuoteTagCount(index);
+        if (n < 0 || n >= tags) {
+            throw new IndexOutOfBoundsException("Tag " + n + " of " + tags + " on quote " + index);
+        }
+        return buffer.getInt(tagListTable + (tagListStart(index) + n) * 4);
+    }
+
+    // Each record holds where its tags start in the tag list table; they end
+    // where the next record's start
+    private int tagListStart(int index) {
+        return buffer.getInt(recordOffset(index) + 16);
+    }
+
+    private int tagListEnd(int index) {
+        return index + 1 < count ? tagListStart(index + 1) : tagListLength;
+    }
+
+    private int recordOffset(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Quote " + index + " of " + count);
+        }
+        return recordTable + index * recordSize;
+    }
+
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(blob + offset);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
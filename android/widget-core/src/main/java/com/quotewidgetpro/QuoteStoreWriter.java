@@ -0,0 +1,275 @@
+package com.quotewidgetpro;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Streams quotes into a new quote store file in the same layout the
+ * {@code compileQuoteStore} Gradle task produces. Records and text go straight
+ * to temp files as they arrive, so heap use is bounded by the number of
+ * distinct authors and tags rather than the size of the corpus. Nothing
+ * replaces the target until {@link #commit()} renames the finished file over
+ * it.
+ */
+public final class QuoteStoreWriter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File target;
+    private final File recordsFile;
+    private final File textsFile;
+    private final File authorsFile;
+    private final File tagsFile;
+    private final File tagListsFile;
+    private final DataOutputStream records;
+    private final OutputStream texts;
+    private final OutputStream authors;
+    private final OutputStream tags;
+    private final DataOutputStream tagLists;
+
+    private final Map<String, Integer> authorIndex = new HashMap<>();
+    private int[] authorOffsets = new int[64];
+    private int[] authorLengths = new int[64];
+    private final Map<String, Integer> tagIndex = new HashMap<>();
+    private int[] tagOffsets = new int[64];
+    private int[] tagLengths = new int[64];
+    private final Set<String> quoteTags = new LinkedHashSet<>();
+    private long textBytes;
+    private long authorBytes;
+    private long tagBytes;
+    private int tagListLength;
+    private int count;
+    private boolean committed;
+
+    public QuoteStoreWriter(File target) throws IOException {
+        File dir = target.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        this.target = target;
+        this.recordsFile = new File(dir, target.getName() + ".records");
+        this.textsFile = new File(dir, target.getName() + ".texts");
+        this.authorsFile = new File(dir, target.getName() + ".authors");
+        this.tagsFile = new File(dir, target.getName() + ".tags");
+        this.tagListsFile = new File(dir, target.getName() + ".taglists");
+        this.records = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(recordsFile), BUFFER_SIZE));
+        this.texts = new BufferedOutputStream(new FileOutputStream(textsFile), BUFFER_SIZE);
+        this.authors = new BufferedOutputStream(new FileOutputStream(authorsFile), BUFFER_SIZE);
+        this.tags = new BufferedOutputStream(new FileOutputStream(tagsFile), BUFFER_SIZE);
+        this.tagLists = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tagListsFile), BUFFER_SIZE));
+    }
+
+    public void add(String text, String author) throws IOException {
+        add(text, author, null);
+    }
+
+    /**
+     * Adds a quote with the given tags, which may be null. Tags are
+     * normalized with {@link QuoteFilter#normalizeTag} and duplicates dropped.
+     */
+    public void add(String text, String author, Collection<String> tags) throws IOException {
+        byte[] textData = text.getBytes(StandardCharsets.UTF_8);
+        if (textBytes + textData.length > Integer.MAX_VALUE) {
+            throw new IOException("Quote store too large");
+        }
+        records.writeInt((int) textBytes);
+        records.writeInt(textData.length);
+        records.writeInt(text.length());
+        records.writeInt(internAuthor(author));
+        records.writeInt(tagListLength);
+        texts.write(textData);
+        textBytes += textData.length;
+
+        if (tags != null) {
+            quoteTags.clear();
+            for (String tag : tags) {
+                String normalized = QuoteFilter.normalizeTag(tag);
+                if (!normalized.isEmpty()) {
+                    quoteTags.add(normalized);
+                }
+            }
+            for (String tag : quoteTags) {
+                tagLists.writeInt(internTag(tag));
+                tagListLength++;
+            }
+        }
+        count++;
+    }
+
+    private int internAuthor(String author) throws IOException {
+        Integer index = authorIndex.get(author);
+        if (index != null) {
+            return index;
+        }
+        byte[] data = author.getBytes(StandardCharsets.UTF_8);
+        int next = authorIndex.size();
+        if (next == authorOffsets.length) {
+            authorOffsets = Arrays.copyOf(authorOffsets, next * 2);
+            authorLengths = Arrays.copyOf(authorLengths, next * 2);
+        }
+        authorOffsets[next] = (int) authorBytes;
+        authorLengths[next] = data.length;
+        authors.write(data);
+        authorBytes += data.length;
+        authorIndex.put(author, next);
+        return next;
+    }
+
+    private int internTag(String tag) throws IOException {
+        Integer index = tagIndex.get(tag);
+        if (index != null) {
+            return index;
+        }
+        byte[] data = tag.getBytes(StandardCharsets.UTF_8);
+        int next = tagIndex.size();
+        if (next == tagOffsets.length) {
+            tagOffsets = Arrays.copyOf(tagOffsets, next * 2);
+            tagLengths = Arrays.copyOf(tagLengths, next * 2);
+        }
+        tagOffsets[next] = (int) tagBytes;
+        tagLengths[next] = data.length;
+        tags.write(data);
+        tagBytes += data.length;
+        tagIndex.put(tag, next);
+        return next;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Pushes buffered records to the temp files. Called once per import batch.
+     */
+    public void flush() throws IOException {
+        records.flush();
+        texts.flush();
+        authors.flush();
+        tags.flush();
+        tagLists.flush();
+    }
+
+    /**
+     * Assembles the temp files into the final store and atomically replaces
+     * the target with it.
+     */
+    public void commit() throws IOException {
+        records.close();
+        texts.close();
+        authors.close();
+        tags.close();
+        tagLists.close();
+
+        int authorCount = authorIndex.size();
+        int tagCount = tagIndex.size();
+        long recordTable = QuoteStore.HEADER_SIZE;
+        long authorTable = recordTable + (long) count * QuoteStore.RECORD_SIZE;
+        long tagTable = authorTable + (long) authorCount * QuoteStore.AUTHOR_ENTRY_SIZE;
+        long tagListTable = tagTable + (long) tagCount * QuoteStore.TAG_ENTRY_SIZE;
+        long blob = tagListTable + (long) tagListLength * 4;
+        if (blob + textBytes + authorBytes + tagBytes > Integer.MAX_VALUE) {
+            throw new IOException("Quote store too large");
+        }
+
+        File temp = new File(target.getParentFile(), target.getName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            file.write(new byte[QuoteStore.HEADER_SIZE]);
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new CheckedOutputStream(file, crc), BUFFER_SIZE));
+            copy(recordsFile, out);
+            for (int i = 0; i < authorCount; i++) {
+                out.writeInt((int) textBytes + authorOffsets[i]);
+                out.writeInt(authorLengths[i]);
+            }
+            for (int i = 0; i < tagCount; i++) {
+                out.writeInt((int) (textBytes + authorBytes) + tagOffsets[i]);
+                out.writeInt(tagLengths[i]);
+            }
+            copy(tagListsFile, out);
+            copy(textsFile, out);
+            copy(authorsFile, out);
+            copy(tagsFile, out);
+            out.flush();
+            file.getFD().sync();
+        }
+
+        try (RandomAccessFile header = new RandomAccessFile(temp, "rw")) {
+            header.writeInt(QuoteStore.MAGIC);
+            header.writeInt(QuoteStore.VERSION);
+            header.writeInt(count);
+            header.writeInt(authorCount);
+            header.writeInt((int) crc.getValue());
+            header.writeInt((int) recordTable);
+            header.writeInt((int) authorTable);
+            header.writeInt((int) blob);
+            header.writeInt(tagCount);
+            header.writeInt((int) tagTable);
+            header.writeInt((int) tagListTable);
+            header.writeInt(tagListLength);
+            header.getFD().sync();
+        }
+
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Cannot replace " + target);
+        }
+        committed = true;
+        deleteTempFiles();
+    }
+
+    private static void copy(File source, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(source)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private void deleteTempFiles() {
+        recordsFile.delete();
+        textsFile.delete();
+        authorsFile.delete();
+        tagsFile.delete();
+        tagListsFile.delete();
+    }
+
+    /**
+     * Discards everything written so far unless the store was committed.
+     */
+    @Override
+    public void close() {
+        if (committed) {
+            return;
+        }
+        try {
+            records.close();
+            texts.close();
+            authors.close();
+            tags.close();
+            tagLists.close();
+        } catch (IOException ignored) {
+            // Temp files are deleted below either way
+        }
+        deleteTempFiles();
+    }
+}
@@ -0,0 +1,61 @@
+package com.quotewidgetpro;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits quote text, author names and search queries into the terms
+ * {@link QuoteSearchIndex} matches on: runs of letters and digits, lowercased
+ * and with accents removed, so "Café" and "cafe" find each other. Terms are
+ * cut at {@link #MAX_TERM_LENGTH} chars.
+ */
+public final class QuoteTokenizer {
+    public static final int MAX_TERM_LENGTH = 24;
+
+    /** Receives terms in the order they occur. */
+    public interface Sink {
+        void term(String term);
+    }
+
+    private QuoteTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        tokenize(text, terms::add);
+        return terms;
+    }
+
+    public static void tokenize(String text, Sink sink) {
+        if (text == null) {
+            return;
+        }
+        // Decomposing moves accents into separate marks, dropped below
+        String folded = isAscii(text) ? text : Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder term = new StringBuilder(MAX_TERM_LENGTH);
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (term.length() < MAX_TERM_LENGTH) {
+                    term.append(Character.toLowerCase(c));
+                }
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && term.length() > 0) {
+                sink.term(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (term.length() > 0) {
+            sink.term(term.toString());
+        }
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
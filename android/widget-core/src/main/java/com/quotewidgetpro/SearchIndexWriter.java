@@ -0,0 +1,163 @@
+package com.quotewidgetpro;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds a {@link QuoteSearchIndex} one quote at a time, in corpus order.
+ * Postings are kept delta and varint encoded from the start, about a byte and
+ * a half per term occurrence, and written out sorted by term once all quotes
+ * are in. Everything stays on the heap until then, so the index is built
+ * from a committed, mapped store rather than alongside an import.
+ */
+public final class SearchIndexWriter {
+    private final Map<String, Postings> terms = new HashMap<>();
+    // Terms of the quote being added; true if the term is in the author's name
+    private final Map<String, Boolean> quoteTerms = new LinkedHashMap<>();
+    private int count;
+
+    /** Indexes the next quote; quotes must be added in store order. */
+    public void add(String text, String author) {
+        quoteTerms.clear();
+        QuoteTokenizer.tokenize(text, term -> quoteTerms.put(term, false));
+        QuoteTokenizer.tokenize(author, term -> quoteTerms.put(term, true));
+        for (Map.Entry<String, Boolean> entry : quoteTerms.entrySet()) {
+            Postings postings = terms.get(entry.getKey());
+            if (postings == null) {
+                postings = new Postings(entry.getKey());
+                terms.put(entry.getKey(), postings);
+            }
+            postings.add(count, entry.getValue());
+        }
+        count++;
+    }
+
+    /** Indexes every quote of {@code store}. */
+    public static SearchIndexWriter of(QuoteStore store) {
+        SearchIndexWriter writer = new SearchIndexWriter();
+        for (int i = 0; i < store.size(); i++) {
+            writer.add(store.getText(i), store.getAuthor(store.getAuthorIndex(i)));
+        }
+        return writer;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Writes the index for a store with {@code corpusVersion} and atomically
+     * replaces {@code target} with it.
+     */
+    public void write(File target, int corpusVersion) throws IOException {
+        Postings[] sorted = terms.values().toArray(new Postings[0]);
+        long postingsBytes = 0;
+        long nameBytes = 0;
+        for (Postings postings : sorted) {
+            postings.name = postings.term.getBytes(StandardCharsets.UTF_8);
+            postingsBytes += postings.length;
+            nameBytes += postings.name.length;
+        }
+        Arrays.sort(sorted, (a, b) -> compareUnsigned(a.name, b.name));
+
+        long termTable = QuoteSearchIndex.HEADER_SIZE;
+        long postingsStart = termTable + (long) sorted.length * QuoteSearchIndex.TERM_ENTRY_SIZE;
+        long blob = postingsStart + postingsBytes;
+        if (blob + nameBytes > Integer.MAX_VALUE) {
+            throw new IOException("Search index too large");
+        }
+
+        File dir = target.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        // Unique, as an import and a rebuild may both write the index
+        File temp = File.createTempFile(target.getName(), ".tmp", dir);
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+            out.writeInt(QuoteSearchIndex.MAGIC);
+            out.writeInt(QuoteSearchIndex.VERSION);
+            out.writeInt(count);
+            out.writeInt(corpusVersion);
+            out.writeInt(sorted.length);
+            out.writeInt((int) termTable);
+            out.writeInt((int) postingsStart);
+            out.writeInt((int) blob);
+
+            int postingsOffset = 0;
+            int nameOffset = 0;
+            for (Postings postings : sorted) {
+                out.writeInt(nameOffset);
+                out.writeInt(postings.name.length);
+                out.writeInt(postingsOffset);
+                out.writeInt(postings.count);
+                postingsOffset += postings.length;
+                nameOffset += postings.name.length;
+            }
+            for (Postings postings : sorted) {
+                out.write(postings.data, 0, postings.length);
+            }
+            for (Postings postings : sorted) {
+                out.write(postings.name);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Cannot replace " + target);
+        }
+    }
+
+    static int compareUnsigned(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * One term's quotes. Each is stored as a varint of the gap to the previous
+     * quote shifted left once, with the low bit set when the term is in the
+     * author's name.
+     */
+    private static final class Postings {
+        final String term;
+        // UTF-8 form of the term, encoded once when the index is written
+        byte[] name;
+        byte[] data = new byte[8];
+        int length;
+        int count;
+        int last = -1;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(int quote, boolean inAuthor) {
+            int value = (quote - last - 1) << 1 | (inAuthor ? 1 : 0);
+            last = quote;
+            count++;
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.quotewidgetpro.palette;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Median-cut color quantizer. Pixels are first bucketed into a 15-bit (5 bits
+ * per channel) histogram, then the box of histogram colors with the most
+ * pixels is repeatedly split at the median of its widest channel until there
+ * are {@code maxColors} boxes. Each box becomes a {@link Swatch} with the
+ * pixel-weighted average color of its members.
+ *
+ * Plain Java with no Android dependencies, so it can run and be measured on
+ * the JVM.
+ */
+public final class ColorQuantizer {
+    private static final int QUANTIZE_BITS = 5;
+    private static final int QUANTIZE_MASK = (1 << QUANTIZE_BITS) - 1;
+    private static final int HISTOGRAM_SIZE = 1 << (QUANTIZE_BITS * 3);
+
+    private static final int COMPONENT_RED = 0;
+    private static final int COMPONENT_GREEN = 1;
+    private static final int COMPONENT_BLUE = 2;
+
+    /** One representative color and how many pixels it stands for. */
+    public static final class Swatch {
+        public final int rgb;
+        public final int population;
+
+        public Swatch(int rgb, int population) {
+            this.rgb = rgb;
+            this.population = population;
+        }
+    }
+
+    private ColorQuantizer() {
+    }
+
+    /**
+     * Reduces {@code pixels} (ARGB) to at most {@code maxColors} swatches,
+     * ordered by population, most common first. Mostly transparent pixels are
+     * ignored. Once {@code deadlineNanos} (a {@link System#nanoTime()} value)
+     * passes, splitting stops and the boxes found so far are returned.
+     */
+    public static List<Swatch> quantize(int[] pixels, int maxColors, long deadlineNanos) {
+        int[] histogram = new int[HISTOGRAM_SIZE];
+        for (int pixel : pixels) {
+            if ((pixel >>> 24) < 0x80) {
+                continue;
+            }
+            histogram[quantize(pixel)]++;
+        }
+
+        int distinct = 0;
+        for (int count : histogram) {
+            if (count > 0) {
+                distinct++;
+            }
+        }
+        int[] colors = new int[distinct];
+        int next = 0;
+        for (int color = 0; color < HISTOGRAM_SIZE; color++) {
+            if (histogram[color] > 0) {
+                colors[next++] = color;
+            }
+        }
+
+        List<Box> boxes = new ArrayList<>();
+        if (distinct > 0) {
+            boxes.add(new Box(colors, histogram, 0, distinct - 1));
+        }
+        while (boxes.size() < maxColors && System.nanoTime() < deadlineNanos) {
+            Box largest = null;
+            for (Box box : boxes) {
+                if (box.canSplit() && (largest == null || box.population > largest.population)) {
+                    largest = box;
+                }
+            }
+            if (largest == null) {
+                break;
+            }
+            boxes.add(largest.split());
+        }
+
+        List<Swatch> swatches = new ArrayList<>(boxes.size());
+        for (Box box : boxes) {
+            swatches.add(box.toSwatch());
+        }
+        swatches.sort((a, b) -> Integer.compare(b.population, a.population));
+        return swatches;
+    }
+
+    private static int quantize(int argb) {
+        int r = (argb >> 16 & 0xFF) >> (8 - QUANTIZE_BITS);
+        int g = (argb >> 8 & 0xFF) >> (8 - QUANTIZE_BITS);
+        int b = (argb & 0xFF) >> (8 - QUANTIZE_BITS);
+        return r << (QUANTIZE_BITS * 2) | g << QUANTIZE_BITS | b;
+    }
+
+    private static int red(int color) {
+        return color >> (QUANTIZE_BITS * 2) & QUANTIZE_MASK;
+    }
+
+    private static int green(int color) {
+        return color >> QUANTIZE_BITS & QUANTIZE_MASK;
+    }
+
+    private static int blue(int color) {
+        return color & QUANTIZE_MASK;
+    }
+
+    /** Expands a 5-bit channel back to 8 bits. */
+    private static int expand(int value) {
+        return value << (8 - QUANTIZE_BITS) | value >> (2 * QUANTIZE_BITS - 8);
+    }
+
+    /**
+     * Swaps the given channel with red in each color of the range, making it
+     * the most significant so a plain sort orders the range by that channel.
+     * The swap is its own inverse, so a second call restores the colors.
+     */
+    private static void swapWithRed(int[] colors, int lower, int upper, int component) {
+        if (component == COMPONENT_RED) {
+            return;
+        }
+        for (int i = lower; i <= upper; i++) {
+            int color = colors[i];
+            if (component == COMPONENT_GREEN) {
+                colors[i] = green(color) << (QUANTIZE_BITS * 2) | red(color) << QUANTIZE_BITS | blue(color);
+            } else {
+                colors[i] = blue(color) << (QUANTIZE_BITS * 2) | green(color) << QUANTIZE_BITS | red(color);
+            }
+        }
+    }
+
+    private static final class Box {
+        private final int[] colors;
+        private final int[] histogram;
+        private final int lower;
+        private int upper;
+        private int population;
+        private int minRed;
+        private int maxRed;
+        private int minGreen;
+        private int maxGreen;
+        private int minBlue;
+        private int maxBlue;
+
+        Box(int[] colors, int[] histogram, int lower, int upper) {
+            this.colors = colors;
+            this.histogram = histogram;
+            this.lower = lower;
+            this.upper = upper;
+            fitBox();
+        }
+
+        boolean canSplit() {
+            return upper > lower;
+        }
+
+        private void fitBox() {
+            minRed = minGreen = minBlue = Integer.MAX_VALUE;
+            maxRed = maxGreen = maxBlue = Integer.MIN_VALUE;
+            population = 0;
+            for (int i = lower; i <= upper; i++) {
+                int color = colors[i];
+                population += histogram[color];
+                minRed = Math.min(minRed, red(color));
+                maxRed = Math.max(maxRed, red(color));
+                minGreen = Math.min(minGreen, green(color));
+                maxGreen = Math.max(maxGreen, green(color));
+                minBlue = Math.min(minBlue, blue(color));
+                maxBlue = Math.max(maxBlue, blue(color));
+            }
+        }
+
+        /** Splits off the upper half of this box and returns it. */
+        Box split() {
+            int component = longestComponent();
+
+            // Sort by the chosen channel, then restore the packed layout
+            swapWithRed(colors, lower, upper, component);
+            Arrays.sort(colors, lower, upper + 1);
+            swapWithRed(colors, lower, upper, component);
+
+            int splitPoint = medianPoint();
+            Box upperBox = new Box(colors, histogram, splitPoint + 1, upper);
+            upper = splitPoint;
+            fitBox();
+            return upperBox;
+        }
+
+        private int longestComponent() {
+            int redLength = maxRed - minRed;
+            int greenLength = maxGreen - minGreen;
+            int blueLength = maxBlue - minBlue;
+            if (redLength >= greenLength && redLength >= blueLength) {
+                return COMPONENT_RED;
+            } else if (greenLength >= redLength && greenLength >= blueLength) {
+                return COMPONENT_GREEN;
+            }
+            return COMPONENT_BLUE;
+        }
+
+        /** Last index of the lower half, so that half holds about half the pixels. */
+        private int medianPoint() {
+            int half = population / 2;
+            int count = 0;
+            for (int i = lower; i < upper; i++) {
+                count += histogram[colors[i]];
+                if (count >= half) {
+                    return i;
+                }
+            }
+            return upper - 1;
+        }
+
+        Swatch toSwatch() {
+            long red = 0;
+            long green = 0;
+            long blue = 0;
+            for (int i = lower; i <= upper; i++) {
+                int color = colors[i];
+                int count = histogram[color];
+                red += (long) count * red(color);
+                green += (long) count * green(color);
+                blue += (long) count * blue(color);
+            }
+            int r = expand(Math.round((float) red / population));
+            int g = expand(Math.round((float) green / population));
+            int b = expand(Math.round((float) blue / population));
+            return new Swatch(0xFF000000 | r << 16 | g << 8 | b, population);
+        }
+    }
+}
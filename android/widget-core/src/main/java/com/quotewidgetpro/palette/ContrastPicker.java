@@ -0,0 +1,57 @@
+package com.quotewidgetpro.palette;
+
+import java.util.List;
+
+/**
+ * Chooses a background and text color from a quantized palette. The most
+ * common swatch becomes the background; the text is the most common other
+ * swatch that reaches {@link #MIN_CONTRAST} against it, falling back to
+ * black or white, whichever contrasts more. Contrast is the WCAG 2 ratio of
+ * relative luminances.
+ */
+public final class ContrastPicker {
+    /** WCAG AA for normal-size text. */
+    public static final double MIN_CONTRAST = 4.5;
+
+    private static final int BLACK = 0xFF000000;
+    private static final int WHITE = 0xFFFFFFFF;
+
+    private ContrastPicker() {
+    }
+
+    /**
+     * Returns {@code {textColor, backgroundColor}} for the swatches, which must
+     * be ordered by population, or null if there are none.
+     */
+    public static int[] pick(List<ColorQuantizer.Swatch> swatches) {
+        if (swatches.isEmpty()) {
+            return null;
+        }
+        int background = swatches.get(0).rgb;
+        for (int i = 1; i < swatches.size(); i++) {
+            int candidate = swatches.get(i).rgb;
+            if (contrast(candidate, background) >= MIN_CONTRAST) {
+                return new int[] { candidate, background };
+            }
+        }
+        int text = contrast(BLACK, background) >= contrast(WHITE, background) ? BLACK : WHITE;
+        return new int[] { text, background };
+    }
+
+    public static double contrast(int a, int b) {
+        double la = luminance(a);
+        double lb = luminance(b);
+        return (Math.max(la, lb) + 0.05) / (Math.min(la, lb) + 0.05);
+    }
+
+    static double luminance(int rgb) {
+        return 0.2126 * linear(rgb >> 16 & 0xFF)
+                + 0.7152 * linear(rgb >> 8 & 0xFF)
+                + 0.0722 * linear(rgb & 0xFF);
+    }
+
+    private static double linear(int channel) {
+        double c = channel / 255.0;
+        return c <= 0.03928 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+}
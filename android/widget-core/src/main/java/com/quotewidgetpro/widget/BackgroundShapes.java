@@ -0,0 +1,34 @@
+package com.quotewidgetpro.widget;
+
+/**
+ * Widget backgrounds come as a fixed set of rounded-rectangle drawables, one
+ * per corner radius below. A configured radius is rounded up to the nearest
+ * one; index 0 is the square background.
+ */
+public final class BackgroundShapes {
+    private static final int[] RADII_DP = { 0, 8, 16, 24, 32, 40, 48, 56 };
+
+    private BackgroundShapes() {
+    }
+
+    /** Number of background shapes, and so of drawables the app must supply. */
+    public static int count() {
+        return RADII_DP.length;
+    }
+
+    /**
+     * Returns the index of the shape used for {@code radiusDp}. Radii past the
+     * largest shape use the largest.
+     */
+    public static int radiusIndex(int radiusDp) {
+        if (radiusDp == 0) {
+            return 0;
+        }
+        for (int i = 1; i < RADII_DP.length - 1; i++) {
+            if (radiusDp <= RADII_DP[i]) {
+                return i;
+            }
+        }
+        return RADII_DP.length - 1;
+    }
+}
@@ -0,0 +1,64 @@
+package com.quotewidgetpro.widget;
+
+/**
+ * Converts between the CSS hex colors the JS side sends and stores
+ * ({@code #RRGGBB} or {@code #RRGGBBAA}) and packed {@code 0xAARRGGBB} ints.
+ * Both directions work on chars directly rather than through String.format
+ * and Long.parseLong, since every settings read goes through here.
+ */
+public final class CssColors {
+    private static final int BLACK = 0xFF000000;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private CssColors() {
+    }
+
+    /** Formats {@code color} as {@code #RRGGBBAA} with uppercase digits. */
+    public static String format(int color) {
+        char[] css = new char[9];
+        css[0] = '#';
+        putByte(css, 1, color >> 16);
+        putByte(css, 3, color >> 8);
+        putByte(css, 5, color);
+        putByte(css, 7, color >>> 24);
+        return new String(css);
+    }
+
+    /**
+     * Parses {@code #RRGGBB} (opaque) or {@code #RRGGBBAA}. Anything not
+     * starting with '#' falls back to opaque black.
+     *
+     * @throws IllegalArgumentException if the digits are not hex or the
+     *         length is neither form
+     */
+    public static int parse(String cssColor) {
+        if (cssColor == null || !cssColor.startsWith("#")) {
+            return BLACK;
+        }
+        if (cssColor.length() == 7) {
+            return BLACK | parseHex(cssColor);
+        }
+        if (cssColor.length() == 9) {
+            int rgba = parseHex(cssColor);
+            return (rgba >>> 8) | (rgba << 24);
+        }
+        throw new IllegalArgumentException("Unknown color: " + cssColor);
+    }
+
+    private static int parseHex(String cssColor) {
+        int value = 0;
+        for (int i = 1; i < cssColor.length(); i++) {
+            int digit = Character.digit(cssColor.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Unknown color: " + cssColor);
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private static void putByte(char[] css, int offset, int value) {
+        css[offset] = HEX_DIGITS[(value >> 4) & 0xF];
+        css[offset + 1] = HEX_DIGITS[value & 0xF];
+    }
+}
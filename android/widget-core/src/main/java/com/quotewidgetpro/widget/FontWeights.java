@@ -0,0 +1,75 @@
+package com.quotewidgetpro.widget;
+
+/**
+ * Interprets the stored font_weight, which is either a CSS number ("100" to
+ * "900") or a name ("thin", "bold", ...). Bundled fonts take the numeric
+ * weight directly; system fonts can only approximate it with one of the
+ * sans-serif variants, picked by {@link #variant}.
+ */
+public final class FontWeights {
+    public static final int THIN = 0;
+    public static final int LIGHT = 1;
+    public static final int NORMAL = 2;
+    public static final int MEDIUM = 3;
+    public static final int BOLD = 4;
+    public static final int BLACK = 5;
+
+    private FontWeights() {
+    }
+
+    /**
+     * Returns which system font variant renders {@code fontWeight}: one of
+     * {@link #THIN}, {@link #LIGHT}, {@link #NORMAL}, {@link #MEDIUM},
+     * {@link #BOLD} or {@link #BLACK}. Weights without a variant of their own
+     * render as {@link #NORMAL}.
+     */
+    public static int variant(String fontWeight) {
+        switch (fontWeight) {
+            case "100": // Thin
+            case "200": // User requested Thin as 200
+            case "thin":
+                return THIN;
+            case "300": // Light
+            case "light":
+                return LIGHT;
+            case "500": // Medium
+            case "medium":
+                return MEDIUM;
+            case "700": // Bold
+            case "bold":
+                return BOLD;
+            case "900": // Black/ExtraBold
+            case "800":
+            case "extrabold":
+                return BLACK;
+            default:
+                // "400", "normal", "regular" and anything unrecognized
+                return NORMAL;
+        }
+    }
+
+    /** Returns the numeric CSS weight of {@code fontWeight}, clamped to 1-1000; 400 if unrecognized. */
+    public static int numeric(String fontWeight) {
+        switch (fontWeight) {
+            case "thin":
+                return 100;
+            case "light":
+                return 300;
+            case "medium":
+                return 500;
+            case "bold":
+                return 700;
+            case "extrabold":
+                return 800;
+            case "normal":
+            case "regular":
+                return 400;
+            default:
+                try {
+                    return Math.max(1, Math.min(1000, Integer.parseInt(fontWeight)));
+                } catch (NumberFormatException e) {
+                    return 400;
+                }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.quotewidgetpro.widget;
+
+/**
+ * Estimates how many characters of quote text fit a widget's text box, from
+ * average glyph metrics instead of laying anything out. It only has to be
+ * close enough to choose which quotes to offer a widget: {@link TextFitter}
+ * still sizes the chosen one exactly. Pure arithmetic, so it is cheap enough
+ * to work out on every render.
+ */
+public final class LengthBudget {
+    // Average advance of a character in proportional Latin text, in ems
+    static final float CHAR_WIDTH_EM = 0.5f;
+    static final float LINE_HEIGHT_EM = 1.2f;
+    // Share of each line left unused where a word wraps
+    static final float WRAP_FILL = 0.85f;
+
+    private LengthBudget() {
+    }
+
+    /**
+     * Returns the number of chars that fit a box of {@code widthDp} by
+     * {@code heightDp} with the quote at {@code textSp} and its author on one
+     * line at {@code authorSp}, lines {@code lineSpacingDp} apart. 0 if not
+     * even one line fits.
+     */
+    public static int capacity(int widthDp, int heightDp, float textSp, float authorSp, float lineSpacingDp,
+            float fontScale) {
+        float textDp = textSp * fontScale;
+        float authorDp = authorSp * fontScale * LINE_HEIGHT_EM;
+        int lines = (int) ((heightDp - authorDp) / (textDp * LINE_HEIGHT_EM + lineSpacingDp));
+        int perLine = (int) (widthDp / (textDp * CHAR_WIDTH_EM));
+        if (lines <= 0 || perLine <= 0) {
+            return 0;
+        }
+        return (int) (lines * perLine * WRAP_FILL);
+    }
+}
@@ -0,0 +1,47 @@
+package com.quotewidgetpro.widget;
+
+/**
+ * Finds the largest text size at which a quote and its author fit a box.
+ * Sizes are searched in {@link #STEP_SP} steps between a minimum and maximum
+ * with a binary search, so a fit costs O(log(range / step)) measurements.
+ *
+ * Measuring is left to a {@link Measurer}, which keeps this class free of
+ * Android dependencies: on device it is backed by StaticLayout, elsewhere by
+ * any approximation.
+ */
+public final class TextFitter {
+    public static final float STEP_SP = 0.5f;
+
+    /** Measures the laid-out height of a quote plus author at a given size. */
+    public interface Measurer {
+        /**
+         * Returns the height in pixels the quote and its author take when laid
+         * out {@code widthPx} wide with the quote at {@code textSizeSp}.
+         */
+        int measureHeight(String text, String author, float textSizeSp, int widthPx);
+    }
+
+    private TextFitter() {
+    }
+
+    /**
+     * Returns the largest size in [{@code minSp}, {@code maxSp}], on the
+     * {@link #STEP_SP} grid from {@code minSp}, whose layout is no taller
+     * than {@code heightPx}. Returns {@code minSp} if even that overflows;
+     * the text is then ellipsized.
+     */
+    public static float fit(Measurer measurer, String text, String author, int widthPx, int heightPx,
+            float minSp, float maxSp) {
+        int low = 0;
+        int high = (int) ((maxSp - minSp) / STEP_SP);
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (measurer.measureHeight(text, author, minSp + mid * STEP_SP, widthPx) <= heightPx) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return minSp + low * STEP_SP;
+    }
+}
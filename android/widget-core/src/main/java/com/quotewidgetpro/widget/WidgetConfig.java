@@ -0,0 +1,140 @@
+package com.quotewidgetpro.widget;
+
+import com.quotewidgetpro.QuoteFilter;
+
+/**
+ * Effective settings of one widget: its own overrides merged key by key over
+ * the defaults stored as widget 0. Instances are immutable and shared through
+ * {@link WidgetConfigResolver}, so renders never touch the settings store.
+ */
+public final class WidgetConfig {
+    public static final String COLOR_TYPE_DEVICE = "device";
+    // Refresh every refreshInterval minutes, with the widget's own shuffled quotes
+    public static final String REFRESH_MODE_INTERVAL = "interval";
+    // Refresh at local midnight to the quote DailyQuote picks for the day
+    public static final String REFRESH_MODE_DAILY = "daily";
+
+    // android.graphics.BLACK and WHITE, spelled out to keep this class off the Android SDK
+    private static final int BLACK = 0xFF000000;
+    private static final int WHITE = 0xFFFFFFFF;
+
+    private static final WidgetSettingsRecord BUILT_IN = new WidgetSettingsRecord()
+            .setFontFamily("sans-serif")
+            .setFontSize(14)
+            .setFontWeight("400")
+            .setTextColor(false, BLACK)
+            .setBackgroundColor(false, WHITE)
+            .setBackgroundType("solid")
+            .setBackgroundOpacity(1.0f)
+            .setBorderRadius(12)
+            .setRefreshInterval(60)
+            .setAutoTheme(false)
+            .setUniqueQuotes(true)
+            .setQuoteFilter(QuoteFilter.NONE)
+            .setRefreshMode(REFRESH_MODE_INTERVAL)
+            .setDailySeed(0);
+
+    public final String fontFamily;
+    public final int fontSize;
+    public final String fontWeight;
+    public final boolean deviceTextColor;
+    public final int textColor;
+    public final boolean deviceBackgroundColor;
+    public final int backgroundColor;
+    public final String backgroundType;
+    public final float backgroundOpacity;
+    public final int borderRadius;
+    public final int refreshInterval;
+    public final boolean autoTheme;
+    public final boolean uniqueQuotes;
+    public final QuoteFilter quoteFilter;
+    public final String refreshMode;
+    public final int dailySeed;
+
+    public WidgetConfig(String fontFamily, int fontSize, String fontWeight, boolean deviceTextColor,
+            int textColor, boolean deviceBackgroundColor, int backgroundColor, String backgroundType,
+            float backgroundOpacity, int borderRadius, int refreshInterval, boolean autoTheme,
+            boolean uniqueQuotes, QuoteFilter quoteFilter, String refreshMode, int dailySeed) {
+        this.fontFamily = fontFamily;
+        this.fontSize = fontSize;
+        this.fontWeight = fontWeight;
+        this.deviceTextColor = deviceTextColor;
+        this.textColor = textColor;
+        this.deviceBackgroundColor = deviceBackgroundColor;
+        this.backgroundColor = backgroundColor;
+        this.backgroundType = backgroundType;
+        this.backgroundOpacity = backgroundOpacity;
+        this.borderRadius = borderRadius;
+        this.refreshInterval = refreshInterval;
+        this.autoTheme = autoTheme;
+        this.uniqueQuotes = uniqueQuotes;
+        this.quoteFilter = quoteFilter;
+        this.refreshMode = refreshMode;
+        this.dailySeed = dailySeed;
+    }
+
+    /** True if the widget shows the quote of the day rather than cycling on an interval. */
+    public boolean isDaily() {
+        return REFRESH_MODE_DAILY.equals(refreshMode);
+    }
+
+    /**
+     * Merges the widget's own record over the defaults record, field by field,
+     * falling back to the built-in defaults for anything neither sets.
+     */
+    static WidgetConfig resolve(WidgetSettingsRecord defaults, WidgetSettingsRecord own) {
+        WidgetSettingsRecord merged = BUILT_IN.merge(defaults).merge(own);
+        return new WidgetConfig(merged.fontFamily, merged.fontSize, merged.fontWeight, merged.deviceTextColor,
+                merged.textColor, merged.deviceBackgroundColor, merged.backgroundColor, merged.backgroundType,
+                merged.backgroundOpacity, merged.borderRadius, merged.refreshInterval, merged.autoTheme,
+                merged.uniqueQuotes, merged.quoteFilter, merged.refreshMode, merged.dailySeed);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof WidgetConfig)) {
+            return false;
+        }
+        WidgetConfig other = (WidgetConfig) o;
+        return fontSize == other.fontSize
+                && deviceTextColor == other.deviceTextColor
+                && textColor == other.textColor
+                && deviceBackgroundColor == other.deviceBackgroundColor
+                && backgroundColor == other.backgroundColor
+                && Float.compare(backgroundOpacity, other.backgroundOpacity) == 0
+                && borderRadius == other.borderRadius
+                && refreshInterval == other.refreshInterval
+                && autoTheme == other.autoTheme
+                && uniqueQuotes == other.uniqueQuotes
+                && fontFamily.equals(other.fontFamily)
+                && fontWeight.equals(other.fontWeight)
+                && backgroundType.equals(other.backgroundType)
+                && dailySeed == other.dailySeed
+                && quoteFilter.equals(other.quoteFilter)
+                && refreshMode.equals(other.refreshMode);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = fontFamily.hashCode();
+        result = 31 * result + fontSize;
+        result = 31 * result + fontWeight.hashCode();
+        result = 31 * result + (deviceTextColor ? 1 : 0);
+        result = 31 * result + textColor;
+        result = 31 * result + (deviceBackgroundColor ? 1 : 0);
+        result = 31 * result + backgroundColor;
+        result = 31 * result + backgroundType.hashCode();
+        result = 31 * result + Float.floatToIntBits(backgroundOpacity);
+        result = 31 * result + borderRadius;
+        result = 31 * result + refreshInterval;
+        result = 31 * result + (autoTheme ? 1 : 0);
+        result = 31 * result + (uniqueQuotes ? 1 : 0);
+        result = 31 * result + quoteFilter.hashCode();
+        result = 31 * result + refreshMode.hashCode();
+        result = 31 * result + dailySeed;
+        return result;
+    }
+}
@@ -0,0 +1,355 @@
+package com.quotewidgetpro.widget;
+
+import com.quotewidgetpro.QuoteFilter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The settings one widget (or the defaults, widget 0) overrides. Only fields
+ * whose bit is set in {@link #mask} are present; everything else falls
+ * through to the defaults when a {@link WidgetConfig} is resolved. Serialized
+ * as a version byte, the mask and then just the present fields, so a record
+ * is a few dozen bytes.
+ */
+public final class WidgetSettingsRecord {
+    static final int FORMAT_VERSION = 1;
+
+    public static final int FONT_FAMILY = 1;
+    public static final int FONT_SIZE = 1 << 1;
+    public static final int FONT_WEIGHT = 1 << 2;
+    public static final int TEXT_COLOR = 1 << 3;
+    public static final int BACKGROUND_COLOR = 1 << 4;
+    public static final int BACKGROUND_TYPE = 1 << 5;
+    public static final int BACKGROUND_OPACITY = 1 << 6;
+    public static final int BORDER_RADIUS = 1 << 7;
+    public static final int REFRESH_INTERVAL = 1 << 8;
+    public static final int AUTO_THEME = 1 << 9;
+    public static final int UNIQUE_QUOTES = 1 << 10;
+    public static final int QUOTE_FILTER = 1 << 11;
+    public static final int REFRESH_MODE = 1 << 12;
+    public static final int DAILY_SEED = 1 << 13;
+
+    int mask;
+    String fontFamily;
+    int fontSize;
+    String fontWeight;
+    boolean deviceTextColor;
+    int textColor;
+    boolean deviceBackgroundColor;
+    int backgroundColor;
+    String backgroundType;
+    float backgroundOpacity;
+    int borderRadius;
+    int refreshInterval;
+    boolean autoTheme;
+    boolean uniqueQuotes;
+    QuoteFilter quoteFilter;
+    String refreshMode;
+    int dailySeed;
+
+    public boolean has(int field) {
+        return (mask & field) != 0;
+    }
+
+    public boolean isEmpty() {
+        return mask == 0;
+    }
+
+    public WidgetSettingsRecord setFontFamily(String value) {
+        fontFamily = value;
+        mask |= FONT_FAMILY;
+        return this;
+    }
+
+    public WidgetSettingsRecord setFontSize(int value) {
+        fontSize = value;
+        mask |= FONT_SIZE;
+        return this;
+    }
+
+    public WidgetSettingsRecord setFontWeight(String value) {
+        fontWeight = value;
+        mask |= FONT_WEIGHT;
+        return this;
+    }
+
+    public WidgetSettingsRecord setTextColor(boolean device, int color) {
+        deviceTextColor = device;
+        textColor = color;
+        mask |= TEXT_COLOR;
+        return this;
+    }
+
+    public WidgetSettingsRecord setBackgroundColor(boolean device, int color) {
+        deviceBackgroundColor = device;
+        backgroundColor = color;
+        mask |= BACKGROUND_COLOR;
+        return this;
+    }
+
+    public WidgetSettingsRecord setBackgroundType(String value) {
+        backgroundType = value;
+        mask |= BACKGROUND_TYPE;
+        return this;
+    }
+
+    public WidgetSettingsRecord setBackgroundOpacity(float value) {
+        backgroundOpacity = value;
+        mask |= BACKGROUND_OPACITY;
+        return this;
+    }
+
+    public WidgetSettingsRecord setBorderRadius(int value) {
+        borderRadius = value;
+        mask |= BORDER_RADIUS;
+        return this;
+    }
+
+    public WidgetSettingsRecord setRefreshInterval(int value) {
+        refreshInterval = value;
+        mask |= REFRESH_INTERVAL;
+        return this;
+    }
+
+    public WidgetSettingsRecord setAutoTheme(boolean value) {
+        autoTheme = value;
+        mask |= AUTO_THEME;
+        return this;
+    }
+
+    public WidgetSettingsRecord setUniqueQuotes(boolean value) {
+        uniqueQuotes = value;
+        mask |= UNIQUE_QUOTES;
+        return this;
+    }
+
+    public WidgetSettingsRecord setQuoteFilter(QuoteFilter value) {
+        quoteFilter = value;
+        mask |= QUOTE_FILTER;
+        return this;
+    }
+
+    public WidgetSettingsRecord setRefreshMode(String value) {
+        refreshMode = value;
+        mask |= REFRESH_MODE;
+        return this;
+    }
+
+    public WidgetSettingsRecord setDailySeed(int value) {
+        dailySeed = value;
+        mask |= DAILY_SEED;
+        return this;
+    }
+
+    /**
+     * Returns a copy of this record with every field present in {@code patch}
+     * overwritten.
+     */
+    public WidgetSettingsRecord merge(WidgetSettingsRecord patch) {
+        WidgetSettingsRecord merged = copy();
+        if (patch.has(FONT_FAMILY)) {
+            merged.setFontFamily(patch.fontFamily);
+        }
+        if (patch.has(FONT_SIZE)) {
+            merged.setFontSize(patch.fontSize);
+        }
+        if (patch.has(FONT_WEIGHT)) {
+            merged.setFontWeight(patch.fontWeight);
+        }
+        if (patch.has(TEXT_COLOR)) {
+            merged.setTextColor(patch.deviceTextColor, patch.textColor);
+        }
+        if (patch.has(BACKGROUND_COLOR)) {
+            merged.setBackgroundColor(patch.deviceBackgroundColor, patch.backgroundColor);
+        }
+        if (patch.has(BACKGROUND_TYPE)) {
+            merged.setBackgroundType(patch.backgroundType);
+        }
+        if (patch.has(BACKGROUND_OPACITY)) {
+            merged.setBackgroundOpacity(patch.backgroundOpacity);
+        }
+        if (patch.has(BORDER_RADIUS)) {
+            merged.setBorderRadius(patch.borderRadius);
+        }
+        if (patch.has(REFRESH_INTERVAL)) {
+            merged.setRefreshInterval(patch.refreshInterval);
+        }
+        if (patch.has(AUTO_THEME)) {
+            merged.setAutoTheme(patch.autoTheme);
+        }
+        if (patch.has(UNIQUE_QUOTES)) {
+            merged.setUniqueQuotes(patch.uniqueQuotes);
+        }
+        if (patch.has(QUOTE_FILTER)) {
+            merged.setQuoteFilter(patch.quoteFilter);
+        }
+        if (patch.has(REFRESH_MODE)) {
+            merged.setRefreshMode(patch.refreshMode);
+        }
+        if (patch.has(DAILY_SEED)) {
+            merged.setDailySeed(patch.dailySeed);
+        }
+        return merged;
+    }
+
+    /**
+     * Returns a copy of this record without the given fields, which then fall
+     * through to the defaults again.
+     */
+    public WidgetSettingsRecord without(int fields) {
+        WidgetSettingsRecord copy = copy();
+        copy.mask &= ~fields;
+        return copy;
+    }
+
+    /** Bit mask of the fields present in this record. */
+    public int fields() {
+        return mask;
+    }
+
+    public WidgetSettingsRecord copy() {
+        WidgetSettingsRecord copy = new WidgetSettingsRecord();
+        copy.mask = mask;
+        copy.fontFamily = fontFamily;
+        copy.fontSize = fontSize;
+        copy.fontWeight = fontWeight;
+        copy.deviceTextColor = deviceTextColor;
+        copy.textColor = textColor;
+        copy.deviceBackgroundColor = deviceBackgroundColor;
+        copy.backgroundColor = backgroundColor;
+        copy.backgroundType = backgroundType;
+        copy.backgroundOpacity = backgroundOpacity;
+        copy.borderRadius = borderRadius;
+        copy.refreshInterval = refreshInterval;
+        copy.autoTheme = autoTheme;
+        copy.uniqueQuotes = uniqueQuotes;
+        copy.quoteFilter = quoteFilter;
+        copy.refreshMode = refreshMode;
+        copy.dailySeed = dailySeed;
+        return copy;
+    }
+
+    /**
+     * Full record holding every field of {@code config}.
+     */
+    public static WidgetSettingsRecord of(WidgetConfig config) {
+        return new WidgetSettingsRecord()
+                .setFontFamily(config.fontFamily)
+                .setFontSize(config.fontSize)
+                .setFontWeight(config.fontWeight)
+                .setTextColor(config.deviceTextColor, config.textColor)
+                .setBackgroundColor(config.deviceBackgroundColor, config.backgroundColor)
+                .setBackgroundType(config.backgroundType)
+                .setBackgroundOpacity(config.backgroundOpacity)
+                .setBorderRadius(config.borderRadius)
+                .setRefreshInterval(config.refreshInterval)
+                .setAutoTheme(config.autoTheme)
+                .setUniqueQuotes(config.uniqueQuotes)
+                .setQuoteFilter(config.quoteFilter)
+                .setRefreshMode(config.refreshMode)
+                .setDailySeed(config.dailySeed);
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(mask);
+        if (has(FONT_FAMILY)) {
+            out.writeUTF(fontFamily);
+        }
+        if (has(FONT_SIZE)) {
+            out.writeInt(fontSize);
+        }
+        if (has(FONT_WEIGHT)) {
+            out.writeUTF(fontWeight);
+        }
+        if (has(TEXT_COLOR)) {
+            out.writeBoolean(deviceTextColor);
+            out.writeInt(textColor);
+        }
+        if (has(BACKGROUND_COLOR)) {
+            out.writeBoolean(deviceBackgroundColor);
+            out.writeInt(backgroundColor);
+        }
+        if (has(BACKGROUND_TYPE)) {
+            out.writeUTF(backgroundType);
+        }
+        if (has(BACKGROUND_OPACITY)) {
+            out.writeFloat(backgroundOpacity);
+        }
+        if (has(BORDER_RADIUS)) {
+            out.writeInt(borderRadius);
+        }
+        if (has(REFRESH_INTERVAL)) {
+            out.writeInt(refreshInterval);
+        }
+        if (has(AUTO_THEME)) {
+            out.writeBoolean(autoTheme);
+        }
+        if (has(UNIQUE_QUOTES)) {
+            out.writeBoolean(uniqueQuotes);
+        }
+        if (has(QUOTE_FILTER)) {
+            quoteFilter.writeTo(out);
+        }
+        if (has(REFRESH_MODE)) {
+            out.writeUTF(refreshMode);
+        }
+        if (has(DAILY_SEED)) {
+            out.writeInt(dailySeed);
+        }
+    }
+
+    static WidgetSettingsRecord readFrom(DataInputStream in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported settings record version: " + version);
+        }
+        WidgetSettingsRecord record = new WidgetSettingsRecord();
+        int mask = in.readInt();
+        if ((mask & FONT_FAMILY) != 0) {
+            record.setFontFamily(in.readUTF());
+        }
+        if ((mask & FONT_SIZE) != 0) {
+            record.setFontSize(in.readInt());
+        }
+        if ((mask & FONT_WEIGHT) != 0) {
+            record.setFontWeight(in.readUTF());
+        }
+        if ((mask & TEXT_COLOR) != 0) {
+            record.setTextColor(in.readBoolean(), in.readInt());
+        }
+        if ((mask & BACKGROUND_COLOR) != 0) {
+            record.setBackgroundColor(in.readBoolean(), in.readInt());
+        }
+        if ((mask & BACKGROUND_TYPE) != 0) {
+            record.setBackgroundType(in.readUTF());
+        }
+        if ((mask & BACKGROUND_OPACITY) != 0) {
+            record.setBackgroundOpacity(in.readFloat());
+        }
+        if ((mask & BORDER_RADIUS) != 0) {
+            record.setBorderRadius(in.readInt());
+        }
+        if ((mask & REFRESH_INTERVAL) != 0) {
+            record.setRefreshInterval(in.readInt());
+        }
+        if ((mask & AUTO_THEME) != 0) {
+            record.setAutoTheme(in.readBoolean());
+        }
+        if ((mask & UNIQUE_QUOTES) != 0) {
+            record.setUniqueQuotes(in.readBoolean());
+        }
+        if ((mask & QUOTE_FILTER) != 0) {
+            record.setQuoteFilter(QuoteFilter.readFrom(in));
+        }
+        if ((mask & REFRESH_MODE) != 0) {
+            record.setRefreshMode(in.readUTF());
+        }
+        if ((mask & DAILY_SEED) != 0) {
+            record.setDailySeed(in.readInt());
+        }
+        return record;
+    }
+}
@@ -0,0 +1,72 @@
+package com.quotewidgetpro;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+
+public class QuoteBitSetTest {
+    private static final int SIZE = 500;
+
+    private File file;
+    private QuoteStore store;
+    private QuoteLengthIndex lengths;
+    private QuoteIndex index;
+
+    @Before
+    public void writeStore() throws IOException {
+        file = File.createTempFile("quotes", ".bin");
+        Random random = new Random(7);
+        try (QuoteStoreWriter writer = new QuoteStoreWriter(file)) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < SIZE; i++) {
+                text.setLength(0);
+                int length = 5 + random.nextInt(200);
+                while (text.length() < length) {
+                    text.append((char) ('a' + random.nextInt(26)));
+                }
+                writer.add(text.toString(), "Author " + random.nextInt(5));
+            }
+            writer.commit();
+        }
+        store = QuoteStore.openFile(file);
+        lengths = QuoteLengthIndex.build(store);
+        index = QuoteIndex.build(store, lengths);
+    }
+
+    @After
+    public void deleteStore() {
+        file.delete();
+    }
+
+    @Test
+    public void withinRanksMatchesALengthBoundedFilter() {
+        int minLength = 40;
+        int maxLength = 120;
+        QuoteBitSet matches = index.match(
+                new QuoteFilter(Collections.singletonList("Author 1"), null, null, null, 0, 0));
+        QuoteBitSet sized = matches.withinRanks(lengths, lengths.rankOf(minLength), lengths.rankOf(maxLength + 1));
+        QuoteBitSet expected = index.match(
+                new QuoteFilter(Collections.singletonList("Author 1"), null, null, null, minLength, maxLength));
+
+        assertTrue(sized.cardinality() > 0);
+        assertEquals(expected.cardinality(), sized.cardinality());
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(expected.get(i), sized.get(i));
+        }
+        assertEquals(expected.fingerprint(), sized.fingerprint());
+    }
+
+    @Test
+    public void emptyRankRangeHasNoMembers() {
+        QuoteBitSet matches = index.match(QuoteFilter.NONE);
+        assertEquals(0, matches.withinRanks(lengths, 10, 10).cardinality());
+    }
+}
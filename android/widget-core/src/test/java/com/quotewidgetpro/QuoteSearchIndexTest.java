@@ -0,0 +1,117 @@
+package com.quotewidgetpro;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class QuoteSearchIndexTest {
+    private static final String[][] QUOTES = {
+            { "Greatness lies not in being strong, but in the right use of strength.", "Henry Ward Beecher" },
+            { "Life is what happens when you are busy making other plans.", "John Lennon" },
+            { "The only way to do great work is to love what you do.", "Steve Jobs" },
+            { "Work hard in silence, let success make the noise.", "Frank Ocean" },
+            { "Love all, trust a few, do wrong to none.", "William Shakespeare" },
+    };
+
+    private File storeFile;
+    private File indexFile;
+    private QuoteStore store;
+    private QuoteSearchIndex index;
+
+    @Before
+    public void writeIndex() throws IOException {
+        storeFile = File.createTempFile("quotes", ".bin");
+        indexFile = File.createTempFile("quotes", ".search");
+        store = writeStore(storeFile, QUOTES);
+        SearchIndexWriter.of(store).write(indexFile, store.getCorpusVersion());
+        index = QuoteSearchIndex.openFile(indexFile);
+    }
+
+    @After
+    public void deleteFiles() {
+        storeFile.delete();
+        indexFile.delete();
+    }
+
+    private static QuoteStore writeStore(File file, String[][] quotes) throws IOException {
+        try (QuoteStoreWriter writer = new QuoteStoreWriter(file)) {
+            for (String[] quote : quotes) {
+                writer.add(quote[0], quote[1]);
+            }
+            writer.commit();
+        }
+        return QuoteStore.openFile(file);
+    }
+
+    @Test
+    public void termMatchesTheStartOfAWordOnly() {
+        QuoteSearchIndex.Result prefix = index.search("grea", 0, 10);
+        assertEquals(2, prefix.total);
+        assertArrayEquals(new int[] { 0, 2 }, prefix.indexes);
+
+        QuoteSearchIndex.Result inside = index.search("reat", 0, 10);
+        assertEquals(0, inside.total);
+        assertEquals(0, inside.indexes.length);
+    }
+
+    @Test
+    public void everyTermMustMatch() {
+        QuoteSearchIndex.Result result = index.search("great work", 0, 10);
+        assertEquals(1, result.total);
+        assertArrayEquals(new int[] { 2 }, result.indexes);
+
+        assertEquals(0, index.search("great noise", 0, 10).total);
+    }
+
+    @Test
+    public void exactWordRanksAbovePrefix() {
+        // "great" is only the start of "greatness" in quote 0 but a whole word in quote 2
+        assertArrayEquals(new int[] { 2, 0 }, index.search("great", 0, 10).indexes);
+    }
+
+    @Test
+    public void pagesSliceTheFullRanking() {
+        // Every quote has a word or author starting with "w"
+        QuoteSearchIndex.Result all = index.search("w", 0, 10);
+        assertEquals(QUOTES.length, all.total);
+        assertEquals(QUOTES.length, all.indexes.length);
+
+        QuoteSearchIndex.Result first = index.search("w", 0, 2);
+        QuoteSearchIndex.Result second = index.search("w", 2, 2);
+        QuoteSearchIndex.Result last = index.search("w", 4, 2);
+        assertEquals(QUOTES.length, first.total);
+        assertEquals(QUOTES.length, second.total);
+        assertEquals(QUOTES.length, last.total);
+        assertArrayEquals(new int[] { all.indexes[0], all.indexes[1] }, first.indexes);
+        assertArrayEquals(new int[] { all.indexes[2], all.indexes[3] }, second.indexes);
+        assertArrayEquals(new int[] { all.indexes[4] }, last.indexes);
+
+        QuoteSearchIndex.Result past = index.search("w", QUOTES.length, 2);
+        assertEquals(QUOTES.length, past.total);
+        assertEquals(0, past.indexes.length);
+    }
+
+    @Test
+    public void indexIsStaleOnceTheCorpusChanges() throws IOException {
+        assertTrue(index.isCurrent(store));
+
+        String[][] edited = QUOTES.clone();
+        edited[1] = new String[] { "Life is really simple, but we insist on making it complicated.", "Confucius" };
+        File editedFile = File.createTempFile("quotes", ".bin");
+        try {
+            QuoteStore editedStore = writeStore(editedFile, edited);
+            assertEquals(store.size(), editedStore.size());
+            assertFalse(index.isCurrent(editedStore));
+        } finally {
+            editedFile.delete();
+        }
+    }
+}
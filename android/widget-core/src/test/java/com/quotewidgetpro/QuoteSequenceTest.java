@@ -0,0 +1,91 @@
+package com.quotewidgetpro;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class QuoteSequenceTest {
+    private static final int SIZE = 50;
+    private static final int MAX_SKIPS = 8;
+
+    @Test
+    public void cycleShowsEveryQuoteOnce() {
+        QuoteSequence.Cursor cursor = new QuoteSequence.Cursor();
+        Random seeds = new Random(1);
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < SIZE; i++) {
+            seen.add(QuoteSequence.next(cursor, SIZE, 1, null, MAX_SKIPS, seeds));
+        }
+        assertEquals(SIZE, seen.size());
+    }
+
+    @Test
+    public void quoteSkippedForSiblingStillComesUpInTheCycle() {
+        QuoteSequence.Cursor cursor = new QuoteSequence.Cursor();
+        Random seeds = new Random(2);
+        // A sibling that never moves off one quote
+        int showing = QuoteSequence.next(new QuoteSequence.Cursor(), SIZE, 1, null, MAX_SKIPS, new Random(2));
+        QuoteSequence.Siblings siblings = index -> index == showing;
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < SIZE; i++) {
+            seen.add(QuoteSequence.next(cursor, SIZE, 1, siblings, MAX_SKIPS, seeds));
+        }
+        assertEquals(SIZE, seen.size());
+    }
+
+    @Test
+    public void deferredQuoteComesBackOnceSiblingMovesOn() {
+        Random seeds = new Random(3);
+        QuoteSequence.Cursor cursor = new QuoteSequence.Cursor();
+        int first = QuoteSequence.next(new QuoteSequence.Cursor(), SIZE, 1, null, MAX_SKIPS, new Random(3));
+        int[] showing = { first };
+        QuoteSequence.Siblings siblings = index -> index == showing[0];
+
+        int picked = QuoteSequence.next(cursor, SIZE, 1, siblings, MAX_SKIPS, seeds);
+        assertNotEquals(first, picked);
+        assertArrayEquals(new int[] { 0 }, cursor.getDeferred());
+
+        showing[0] = -1;
+        assertEquals(first, QuoteSequence.next(cursor, SIZE, 1, siblings, MAX_SKIPS, seeds));
+        assertEquals(0, cursor.getDeferred().length);
+    }
+
+    @Test
+    public void deferredPositionsSurviveASavedCursor() {
+        QuoteSequence.Cursor cursor = new QuoteSequence.Cursor();
+        Random seeds = new Random(4);
+        int blocked = QuoteSequence.next(new QuoteSequence.Cursor(), SIZE, 1, null, MAX_SKIPS, new Random(4));
+        QuoteSequence.next(cursor, SIZE, 1, index -> index == blocked, MAX_SKIPS, seeds);
+
+        QuoteSequence.Cursor restored = new QuoteSequence.Cursor(cursor.getSeed(), cursor.getPosition(),
+                cursor.getCorpusSize(), cursor.getCorpusVersion(), cursor.getDeferred());
+        assertEquals(blocked, QuoteSequence.next(restored, SIZE, 1, null, MAX_SKIPS, seeds));
+    }
+
+    @Test
+    public void deferredPositionsAreDroppedWhenTheCorpusChanges() {
+        QuoteSequence.Cursor cursor = new QuoteSequence.Cursor();
+        Random seeds = new Random(5);
+        int blocked = QuoteSequence.next(new QuoteSequence.Cursor(), SIZE, 1, null, MAX_SKIPS, new Random(5));
+        QuoteSequence.next(cursor, SIZE, 1, index -> index == blocked, MAX_SKIPS, seeds);
+
+        QuoteSequence.next(cursor, SIZE, 2, null, MAX_SKIPS, seeds);
+        assertEquals(0, cursor.getDeferred().length);
+    }
+
+    @Test
+    public void fullDeferralListStopsDeferring() {
+        QuoteSequence.Cursor cursor = new QuoteSequence.Cursor();
+        // Every quote is taken by a sibling
+        int picked = QuoteSequence.next(cursor, SIZE, 1, index -> true, MAX_SKIPS, new Random(6));
+        assertEquals(MAX_SKIPS, cursor.getDeferred().length);
+        assertEquals(MAX_SKIPS + 1, cursor.getPosition());
+        assertNotEquals(-1, picked);
+    }
+}
@@ -0,0 +1,115 @@
+package com.quotewidgetpro.palette;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class ColorQuantizerTest {
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    @Test
+    public void singleColorGivesOneSwatch() {
+        int[] pixels = new int[100];
+        Arrays.fill(pixels, 0xFFFFFFFF);
+        List<ColorQuantizer.Swatch> swatches = ColorQuantizer.quantize(pixels, 8, NO_DEADLINE);
+        assertEquals(1, swatches.size());
+        assertEquals(0xFFFFFFFF, swatches.get(0).rgb);
+        assertEquals(100, swatches.get(0).population);
+    }
+
+    @Test
+    public void swatchesAreOrderedByPopulation() {
+        int[] pixels = new int[400];
+        Arrays.fill(pixels, 0, 100, 0xFF000000);
+        Arrays.fill(pixels, 100, 400, 0xFFFFFFFF);
+        List<ColorQuantizer.Swatch> swatches = ColorQuantizer.quantize(pixels, 8, NO_DEADLINE);
+        assertEquals(2, swatches.size());
+        assertEquals(0xFFFFFFFF, swatches.get(0).rgb);
+        assertEquals(300, swatches.get(0).population);
+        assertEquals(0xFF000000, swatches.get(1).rgb);
+        assertEquals(100, swatches.get(1).population);
+    }
+
+    @Test
+    public void transparentPixelsAreIgnored() {
+        int[] pixels = new int[50];
+        Arrays.fill(pixels, 0x40FF0000);
+        assertTrue(ColorQuantizer.quantize(pixels, 8, NO_DEADLINE).isEmpty());
+    }
+
+    @Test
+    public void staysWithinMaxColorsAndKeepsEveryPixel() {
+        int[] pixels = noise(64 * 64, 1);
+        List<ColorQuantizer.Swatch> swatches = ColorQuantizer.quantize(pixels, 8, NO_DEADLINE);
+        assertEquals(8, swatches.size());
+        int population = 0;
+        for (int i = 0; i < swatches.size(); i++) {
+            population += swatches.get(i).population;
+            if (i > 0) {
+                assertTrue(swatches.get(i - 1).population >= swatches.get(i).population);
+            }
+        }
+        assertEquals(pixels.length, population);
+    }
+
+    @Test
+    public void passedDeadlineStopsSplitting() {
+        int[] pixels = noise(64 * 64, 2);
+        List<ColorQuantizer.Swatch> swatches = ColorQuantizer.quantize(pixels, 8, System.nanoTime() - 1);
+        assertEquals(1, swatches.size());
+        assertEquals(pixels.length, swatches.get(0).population);
+    }
+
+    @Test
+    public void contrastOfBlackOnWhiteIsTwentyOne() {
+        assertEquals(21.0, ContrastPicker.contrast(0xFF000000, 0xFFFFFFFF), 1e-9);
+        assertEquals(1.0, ContrastPicker.contrast(0xFF336699, 0xFF336699), 1e-9);
+    }
+
+    @Test
+    public void pickerUsesMostCommonSwatchAsBackground() {
+        List<ColorQuantizer.Swatch> swatches = Arrays.asList(
+                new ColorQuantizer.Swatch(0xFFF5F5DC, 500),
+                // Too close to the background to read
+                new ColorQuantizer.Swatch(0xFFE0E0C0, 300),
+                new ColorQuantizer.Swatch(0xFF202040, 100));
+        int[] pair = ContrastPicker.pick(swatches);
+        assertEquals(0xFF202040, pair[0]);
+        assertEquals(0xFFF5F5DC, pair[1]);
+    }
+
+    @Test
+    public void pickerFallsBackToBlackOrWhite() {
+        int[] dark = ContrastPicker.pick(Arrays.asList(
+                new ColorQuantizer.Swatch(0xFF101018, 500), new ColorQuantizer.Swatch(0xFF202028, 100)));
+        assertEquals(0xFFFFFFFF, dark[0]);
+        int[] light = ContrastPicker.pick(Collections.singletonList(new ColorQuantizer.Swatch(0xFFF0F0F0, 1)));
+        assertEquals(0xFF000000, light[0]);
+        assertNull(ContrastPicker.pick(Collections.<ColorQuantizer.Swatch>emptyList()));
+    }
+
+    @Test
+    public void pickedPairIsAlwaysReadable() {
+        for (int seed = 0; seed < 50; seed++) {
+            int[] pair = ContrastPicker.pick(ColorQuantizer.quantize(noise(32 * 32, seed), 8, NO_DEADLINE));
+            assertTrue(ContrastPicker.contrast(pair[0], pair[1]) >= ContrastPicker.MIN_CONTRAST
+                    || pair[0] == 0xFF000000 || pair[0] == 0xFFFFFFFF);
+        }
+    }
+
+    private static int[] noise(int count, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[count];
+        for (int i = 0; i < count; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+}
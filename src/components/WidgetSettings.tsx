@@ -19,6 +19,7 @@ interface WidgetSettings {
   backgroundOpacity: number;
   borderRadius: number;
   refreshInterval: number;
+  refreshMode?: string;
   autoTheme: boolean;
 }
 
@@ -109,6 +110,15 @@ const WidgetSettingsComponent: React.FC<Props> = ({
     if (onLocalSettingsChange) onLocalSettingsChange(newSettings);
   };
 
+  // Daily widgets change once at local midnight, whatever the interval
+  const isDaily = localSettings.refreshMode === 'daily';
+
+  const updateRefresh = (refreshMode: string, refreshInterval: number) => {
+    const newSettings = { ...localSettings, refreshMode, refreshInterval };
+    setLocalSettings(newSettings);
+    if (onLocalSettingsChange) onLocalSettingsChange(newSettings);
+  };
+
   return (
     <View style={styles.container}>
       <SettingSection title="Text Style">
@@ -194,12 +204,19 @@ const WidgetSettingsComponent: React.FC<Props> = ({
             <OptionButton
               key={interval.value}
               label={interval.label}
-              selected={localSettings.refreshInterval === interval.value}
-              onPress={() =>
-                updateLocalSetting('refreshInterval', interval.value)
+              selected={
+                !isDaily && localSettings.refreshInterval === interval.value
               }
+              onPress={() => updateRefresh('interval', interval.value)}
             />
           ))}
+          <OptionButton
+            label="Daily"
+            selected={isDaily}
+            onPress={() =>
+              updateRefresh('daily', localSettings.refreshInterval)
+            }
+          />
         </View>
       </SettingSection>
     </View>
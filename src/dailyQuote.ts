@@ -0,0 +1,70 @@
+import QuoteWidget from './specs/NativeQuoteWidget';
+
+// The quote of the day, computed exactly as DailyQuote.java does on the
+// native side, so the app shows the same quote as every daily widget with
+// the same seed without asking each widget what it shows. Keep the two in
+// step.
+
+const DAY_MILLIS = 24 * 60 * 60 * 1000;
+const ROUNDS = 4;
+
+// MurmurHash3's 32-bit finalizer
+const mix = (value: number): number => {
+  let h = value | 0;
+  h ^= h >>> 16;
+  h = Math.imul(h, 0x85ebca6b);
+  h ^= h >>> 13;
+  h = Math.imul(h, 0xc2b2ae35);
+  h ^= h >>> 16;
+  return h;
+};
+
+const permute = (index: number, size: number, key: number): number => {
+  if (size === 1) {
+    return 0;
+  }
+  const bits = 32 - Math.clz32(size - 1);
+  const half = (bits + 1) >> 1;
+  const mask = (1 << half) - 1;
+  let value = index;
+  do {
+    let left = (value >>> half) & mask;
+    let right = value & mask;
+    for (let round = 0; round < ROUNDS; round++) {
+      const next =
+        left ^ (mix(((right ^ key) + Math.imul(round, 0x9e3779b9)) | 0) & mask);
+      left = right;
+      right = next;
+    }
+    value = (left << half) | right;
+  } while (value >= size);
+  return value;
+};
+
+// Days since 1970-01-01 on the device's local calendar
+export const localEpochDay = (date: Date = new Date()): number =>
+  Math.floor(
+    (date.getTime() - date.getTimezoneOffset() * 60 * 1000) / DAY_MILLIS,
+  );
+
+// Index of the quote for the given day, or -1 if the corpus is empty
+export const dailyQuoteIndex = (
+  epochDay: number,
+  seed: number,
+  corpusVersion: number,
+  corpusSize: number,
+): number => {
+  if (corpusSize <= 0) {
+    return -1;
+  }
+  const pass = Math.floor(epochDay / corpusSize);
+  const day = epochDay - pass * corpusSize;
+  const key = mix(mix(mix(seed) ^ corpusVersion) ^ pass);
+  return permute(day, corpusSize, key);
+};
+
+// Today's quote index for daily widgets using the given seed
+export const todaysQuoteIndex = (seed: number = 0): number => {
+  const corpus = QuoteWidget.getCorpusInfoSync();
+  return dailyQuoteIndex(localEpochDay(), seed, corpus.version, corpus.size);
+};
@@ -6,15 +6,14 @@ import {
   ScrollView,
   TouchableOpacity,
   Alert,
-  NativeModules,
   ImageBackground,
 } from 'react-native';
 import WidgetSettings from '../components/WidgetSettings';
 import WidgetPreview from '../components/WidgetPreview';
 import { SafeAreaProvider, SafeAreaView } from 'react-native-safe-area-context';
 import Header from '../components/Header';
-
-const { QuoteWidget } = NativeModules;
+import QuoteWidget, { WidgetSnapshot } from '../specs/NativeQuoteWidget';
+import { subscribeToWidgetEvents } from '../widgetEvents';
 
 interface WidgetSettings {
   fontFamily: string;
@@ -26,98 +25,70 @@ interface WidgetSettings {
   backgroundOpacity: number;
   borderRadius: number;
   refreshInterval: number;
+  refreshMode?: string;
   autoTheme: boolean;
 }
 
+const FALLBACK_SETTINGS: WidgetSettings = {
+  fontFamily: 'sans-serif',
+  fontSize: 14,
+  textColor: '#000000',
+  fontWeight: '400',
+  backgroundColor: '#FFFFFF',
+  backgroundType: 'solid',
+  backgroundOpacity: 1,
+  borderRadius: 12,
+  refreshInterval: 60,
+  autoTheme: false,
+};
+
+// Defaults first, then every installed widget, in one native call
+const loadSnapshot = (): WidgetSnapshot[] => {
+  try {
+    return QuoteWidget.getWidgetsSnapshot();
+  } catch (error) {
+    console.log('Error loading widgets:', error);
+    return [];
+  }
+};
+
 const HomeScreen: React.FC = () => {
-  const [currentWidgetId, setCurrentWidgetId] = useState<number | null>(0);
-  const [widgetSettings, setWidgetSettings] = useState<WidgetSettings>({
-    fontFamily: 'sans-serif',
-    fontSize: 14,
-    textColor: '#000000',
-    fontWeight: '400',
-    backgroundColor: '#FFFFFF',
-    backgroundType: 'solid',
-    backgroundOpacity: 1,
-    borderRadius: 12,
-    refreshInterval: 60,
-    autoTheme: false,
-  });
+  // Settings are read synchronously from the native cache, so the first
+  // render (and every slider under it) already shows the stored values
+  const [snapshot] = useState<WidgetSnapshot[]>(loadSnapshot);
+  const [availableWidgets, setAvailableWidgets] = useState<number[]>(() =>
+    snapshot.filter(entry => entry.widgetId !== 0).map(entry => entry.widgetId),
+  );
+  // The first widget's settings, or the defaults when no widget is placed
+  const [widgetSettings, setWidgetSettings] = useState<WidgetSettings>(
+    () =>
+      (snapshot.find(entry => entry.widgetId !== 0) ?? snapshot[0])?.settings ??
+      FALLBACK_SETTINGS,
+  );
   const [previewSettings, setPreviewSettings] =
     useState<WidgetSettings>(widgetSettings);
-  const [availableWidgets, setAvailableWidgets] = useState<number[]>([]);
-  const [isStandalone, setIsStandalone] = useState<boolean>(true);
-
-  useEffect(() => {
-    loadAvailableWidgets();
-    loadDefaultSettings();
-  }, []);
-
-  const loadAvailableWidgets = async (): Promise<void> => {
-    try {
-      const widgets = await QuoteWidget.getAllWidgetIds();
-      const widgetArray: number[] = Object.values(widgets);
-      setAvailableWidgets(widgetArray);
-      setIsStandalone(widgetArray.length === 0);
-
-      if (widgetArray.length > 0) {
-        const widgetId = widgetArray[0];
-        setCurrentWidgetId(widgetId);
-        await loadWidgetSettings(widgetId);
-      } else {
-        setCurrentWidgetId(0);
-        await loadDefaultSettings();
-      }
-    } catch (error) {
-      console.log('Error loading widgets:', error);
-      setCurrentWidgetId(0);
-      await loadDefaultSettings();
-    }
-  };
-
-  const loadDefaultSettings = async (): Promise<void> => {
-    try {
-      const settings = await QuoteWidget.getDefaultSettings();
-      setWidgetSettings(settings);
-      setPreviewSettings(settings);
-    } catch (error) {
-      console.log('Error loading default settings:', error);
-    }
-  };
-
-  const loadWidgetSettings = async (widgetId: number): Promise<void> => {
-    if (widgetId === null || widgetId === undefined) return;
 
-    try {
-      if (widgetId === 0) {
-        await loadDefaultSettings();
-        return;
-      }
-      const settings = await QuoteWidget.getWidgetSettings(widgetId);
-      setWidgetSettings(settings);
-      setPreviewSettings(settings);
-    } catch (error) {
-      console.log('Error loading widget settings:', error);
-      Alert.alert('Error', 'Failed to load widget settings');
-    }
-  };
+  // Follow widgets being placed and removed instead of polling for ids
+  useEffect(
+    () =>
+      subscribeToWidgetEvents({
+        onAdded: ({ widgetId }) =>
+          setAvailableWidgets(ids =>
+            ids.includes(widgetId) ? ids : [...ids, widgetId],
+          ),
+        onDeleted: ({ widgetIds }) =>
+          setAvailableWidgets(ids => ids.filter(id => !widgetIds.includes(id))),
+      }),
+    [],
+  );
 
   // ✅ unified function to always apply settings to all widgets
   const applySettingsToAllWidgets = async (
     newSettings: WidgetSettings,
   ): Promise<void> => {
     try {
-      await QuoteWidget.updateDefaultSettings(newSettings);
-
-      const widgets = await QuoteWidget.getAllWidgetIds();
-      const widgetArray: number[] = Object.values(widgets);
-
-      if (widgetArray.length > 0) {
-        for (const id of widgetArray) {
-          await QuoteWidget.updateWidgetSettings(id, newSettings);
-          await QuoteWidget.forceUpdateWidget(id);
-        }
-      }
+      // Defaults plus every widget, saved and rendered in one native call
+      await QuoteWidget.applySettings([0, ...availableWidgets], newSettings);
 
       setWidgetSettings(newSettings);
       setPreviewSettings(newSettings);
@@ -0,0 +1,149 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+// Which quotes a widget may show. Empty lists and 0 lengths don't restrict;
+// authors and tags each match any of theirs, everything else must also hold
+export type QuoteFilter = {
+  authors?: string[];
+  excludedAuthors?: string[];
+  tags?: string[];
+  excludedTags?: string[];
+  minLength?: number;
+  maxLength?: number;
+};
+
+export type WidgetSettings = {
+  fontFamily: string;
+  fontSize: number;
+  textColor: string;
+  fontWeight: string;
+  backgroundColor: string;
+  backgroundType: string;
+  backgroundOpacity: number;
+  borderRadius: number;
+  refreshInterval: number;
+  autoTheme: boolean;
+  uniqueQuotes: boolean;
+  quoteFilter: QuoteFilter;
+  // 'interval' or 'daily'; daily widgets change at local midnight
+  refreshMode: string;
+  dailySeed: number;
+};
+
+// Only the keys present are saved; the rest keep their current values
+export type WidgetSettingsPatch = {
+  fontFamily?: string;
+  fontSize?: number;
+  textColor?: string;
+  fontWeight?: string;
+  backgroundColor?: string;
+  backgroundType?: string;
+  backgroundOpacity?: number;
+  borderRadius?: number;
+  refreshInterval?: number;
+  autoTheme?: boolean;
+  uniqueQuotes?: boolean;
+  // null clears the filter
+  quoteFilter?: QuoteFilter | null;
+  refreshMode?: string;
+  dailySeed?: number;
+};
+
+export type ApplySettingsResult = {
+  widgetId: number;
+  saved: boolean;
+  rendered: boolean;
+  error?: string;
+};
+
+export type WidgetSnapshot = {
+  widgetId: number;
+  settings: WidgetSettings;
+  // Index of the quote on screen, -1 for the defaults or if none yet
+  quoteIndex: number;
+};
+
+export type QuoteItem = {
+  index: number;
+  text: string;
+  author: string;
+};
+
+export type SearchResult = {
+  // Matches across all pages
+  total: number;
+  // Best match first
+  items: Array<QuoteItem>;
+};
+
+export type CorpusInfo = {
+  size: number;
+  version: number;
+};
+
+export type StageLatency = {
+  count: number;
+  meanUs: number;
+  p50Us: number;
+  p90Us: number;
+  p99Us: number;
+  maxUs: number;
+};
+
+export type RenderMetrics = {
+  // renderPasses, widgetsRendered, fullPushes, partialPushes, skippedPushes,
+  // preparedPushes, cache hits and misses, render queue and broadcast counters
+  counters: { [name: string]: number };
+  // resolveConfig, selectQuote, buildViews, updateAppWidget, render
+  stages: { [name: string]: StageLatency };
+};
+
+export type ImportResult = {
+  imported: number;
+  skipped: number;
+};
+
+export interface Spec extends TurboModule {
+  // Synchronous reads, served from the native settings cache. Cheap enough
+  // to call during render or while a slider is being dragged.
+  getWidgetSettingsSync(widgetId: number): WidgetSettings;
+  getDefaultSettingsSync(): WidgetSettings;
+  getWidgetIdsSync(): Array<number>;
+  // Inputs to dailyQuoteIndex() in src/dailyQuote.ts
+  getCorpusInfoSync(): CorpusInfo;
+  // The defaults (widget 0) followed by every installed widget
+  getWidgetsSnapshot(): Array<WidgetSnapshot>;
+
+  // Writes and renders stay asynchronous
+  updateWidgetSettings(
+    widgetId: number,
+    settings: WidgetSettingsPatch,
+  ): Promise<string>;
+  updateDefaultSettings(settings: WidgetSettingsPatch): Promise<string>;
+  applySettings(
+    targets: Array<number>,
+    settings: WidgetSettingsPatch,
+  ): Promise<Array<ApplySettingsResult>>;
+  forceUpdateWidget(widgetId: number): Promise<string>;
+  getRenderMetrics(): Promise<RenderMetrics>;
+
+  getWidgetSettings(widgetId: number): Promise<WidgetSettings>;
+  getDefaultSettings(): Promise<WidgetSettings>;
+  getAllWidgetIds(): Promise<{ [index: string]: number }>;
+
+  getQuoteCount(): Promise<number>;
+  getQuotes(offset: number, limit: number): Promise<Array<QuoteItem>>;
+  // Quotes whose text or author has a word starting with each query word
+  searchQuotes(
+    query: string,
+    offset: number,
+    limit: number,
+  ): Promise<SearchResult>;
+  importQuotes(uri: string): Promise<ImportResult>;
+  cancelImport(): Promise<boolean>;
+
+  addListener(eventName: string): void;
+  removeListeners(count: number): void;
+}
+
+export default TurboModuleRegistry.getEnforcing<Spec>('QuoteWidget');
@@ -0,0 +1,48 @@
+import { DeviceEventEmitter, EmitterSubscription } from 'react-native';
+
+// Events QuoteWidgetModule emits as widgets change on the home screen
+
+export type WidgetAddedEvent = {
+  widgetId: number;
+};
+
+export type WidgetDeletedEvent = {
+  widgetIds: number[];
+};
+
+export type WidgetRenderedEvent = {
+  widgetId: number;
+  quoteIndex: number;
+  text: string;
+  author: string;
+  durationMs: number;
+};
+
+export type WidgetEventHandlers = {
+  onAdded?: (event: WidgetAddedEvent) => void;
+  onDeleted?: (event: WidgetDeletedEvent) => void;
+  onRendered?: (event: WidgetRenderedEvent) => void;
+};
+
+// Subscribes to the given events; returns a function that unsubscribes
+export const subscribeToWidgetEvents = (
+  handlers: WidgetEventHandlers,
+): (() => void) => {
+  const subscriptions: EmitterSubscription[] = [];
+  if (handlers.onAdded) {
+    subscriptions.push(
+      DeviceEventEmitter.addListener('QuoteWidgetAdded', handlers.onAdded),
+    );
+  }
+  if (handlers.onDeleted) {
+    subscriptions.push(
+      DeviceEventEmitter.addListener('QuoteWidgetDeleted', handlers.onDeleted),
+    );
+  }
+  if (handlers.onRendered) {
+    subscriptions.push(
+      DeviceEventEmitter.addListener('QuoteWidgetRendered', handlers.onRendered),
+    );
+  }
+  return () => subscriptions.forEach(subscription => subscription.remove());
+};